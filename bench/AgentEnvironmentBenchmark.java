@@ -0,0 +1,56 @@
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Stepping worldCount headless worlds at once with random actions that change every few steps. The worlds are reset
+ * every minute of game time, so finished games don't make up most of the run; the reset is counted in the step.
+ */
+public class AgentEnvironmentBenchmark {
+    private static final int STEPS_PER_DECISION = 30;
+    private static final int STEPS_PER_EPISODE = 60 * ShadowDungeon.TICKS_PER_SECOND;
+    private static final long SEED = 42;
+    private static final int[] WORLD_COUNTS = {1, 16, 256};
+
+    private final AgentEnvironment environment;
+    private final ActionBatch actions;
+    private final Random random = new Random(SEED);
+    private final GameConfig config;
+    private final int worldCount;
+    private int steps = 0;
+
+    private AgentEnvironmentBenchmark(int worldCount) {
+        this.worldCount = worldCount;
+        Properties gameProps = BenchmarkLevels.loadGameProps();
+        Properties messageProps = IOUtils.readPropertiesFile("res/message.properties");
+        config = new GameConfig(gameProps, messageProps);
+        environment = new AgentEnvironment(gameProps, messageProps, config, LevelSpec.parse(gameProps), worldCount);
+        actions = new ActionBatch(worldCount);
+        environment.reset(SEED);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int worldCount : WORLD_COUNTS) {
+            AgentEnvironmentBenchmark benchmark = new AgentEnvironmentBenchmark(worldCount);
+            try {
+                BenchmarkTimer.measure("AgentEnvironment.step (worldCount " + worldCount + ")", benchmark::step);
+            } finally {
+                benchmark.environment.close();
+            }
+        }
+    }
+
+    private Observations step() {
+        if (steps == STEPS_PER_EPISODE) {
+            environment.reset(SEED);
+            steps = 0;
+        }
+        if (steps++ % STEPS_PER_DECISION == 0) {
+            for (int i = 0; i < worldCount; i++) {
+                actions.buttons[i] = random.nextInt(ActionBatch.FIRE << 1);
+                actions.aimX[i] = random.nextDouble() * config.windowWidth;
+                actions.aimY[i] = random.nextDouble() * config.windowHeight;
+            }
+        }
+        return environment.step(actions);
+    }
+}
@@ -0,0 +1,60 @@
+import bagel.MouseButtons;
+
+import java.util.Properties;
+
+/**
+ * Collision handling and a full frame of a battle room with entityCount walls and entityCount bullets.
+ * Walls and the window edges use bullets up, so every operation starts by refilling the pool. Refilling is also timed
+ * on its own, so it can be taken off the other two.
+ */
+public class BattleRoomBenchmark {
+    private static final String ROOM_NAME = "A";
+    private static final int[] ENTITY_COUNTS = {10, 100, 1000, 10000};
+
+    private final int entityCount;
+    private final BattleRoom room;
+    private final Player player;
+    private final ScriptedInputSource input;
+
+    private BattleRoomBenchmark(int entityCount) {
+        this.entityCount = entityCount;
+        Properties gameProps = BenchmarkLevels.loadGameProps();
+        gameProps.setProperty("wall." + ROOM_NAME, BenchmarkLevels.scatter(entityCount, gameProps));
+        GameWorld world = BenchmarkLevels.init(gameProps);
+
+        room = new BattleRoom(world, ROOM_NAME);
+        room.initEntities(LevelSpec.parse(gameProps).getRoom(ROOM_NAME));
+        player = new Player(world, world.getConfig().playerStart);
+        player.selectCharacter(CharacterType.MARINE);
+        room.setPlayer(player);
+
+        input = new ScriptedInputSource();
+        input.setDown(MouseButtons.LEFT, true);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int entityCount : ENTITY_COUNTS) {
+            BattleRoomBenchmark benchmark = new BattleRoomBenchmark(entityCount);
+            String suffix = " (entityCount " + entityCount + ")";
+            BenchmarkTimer.measure("BattleRoom.refillBullets" + suffix, () -> {
+                benchmark.refillBullets();
+                return null;
+            });
+            BenchmarkTimer.measure("BattleRoom.handleBulletCollisions" + suffix, () -> {
+                benchmark.refillBullets();
+                benchmark.room.handleBulletCollisions();
+                return null;
+            });
+            BenchmarkTimer.measure("BattleRoom.update" + suffix, () -> {
+                benchmark.refillBullets();
+                benchmark.room.update(benchmark.input);
+                benchmark.input.endFrame();
+                return null;
+            });
+        }
+    }
+
+    private void refillBullets() {
+        BenchmarkLevels.fillBullets(player, entityCount);
+    }
+}
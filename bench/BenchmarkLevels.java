@@ -0,0 +1,62 @@
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Builds synthetic levels for the benchmarks on top of res/app.properties and starts the game headless.
+ * Benchmarks must be run from the project root so that res/ can be found.
+ */
+public class BenchmarkLevels {
+    private static final long SEED = 42;
+
+    public static Properties loadGameProps() {
+        Properties gameProps = new Properties();
+        gameProps.putAll(IOUtils.readPropertiesFile("res/app.properties"));
+        return gameProps;
+    }
+
+    /**
+     * Create a game world with the given level and no window, current on the calling thread
+     */
+    public static GameWorld init(Properties gameProps) {
+        Properties messageProps = IOUtils.readPropertiesFile("res/message.properties");
+        GameWorld world = new GameWorld(gameProps, messageProps, new GameConfig(gameProps, messageProps),
+                LevelSpec.parse(gameProps), new NullRenderer());
+        world.makeCurrent();
+        return world;
+    }
+
+    /**
+     * @return count coordinates spread across the window in the "x,y;x,y;..." level format
+     */
+    public static String scatter(int count, Properties gameProps) {
+        double width = Double.parseDouble(gameProps.getProperty("window.width"));
+        double height = Double.parseDouble(gameProps.getProperty("window.height"));
+        Random random = new Random(SEED);
+
+        StringBuilder coords = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                coords.append(';');
+            }
+            coords.append(Math.round(random.nextDouble() * width)).append(',')
+                    .append(Math.round(random.nextDouble() * height));
+        }
+        return coords.toString();
+    }
+
+    /**
+     * Fill the player's bullet pool with bullets spread across the window, flying in random directions
+     */
+    public static void fillBullets(Player player, int count) {
+        GameConfig config = ShadowDungeon.getConfig();
+        BulletPool bullets = player.getBullets();
+        Random random = new Random(SEED);
+
+        bullets.clear();
+        for (int i = 0; i < count && bullets.size() < bullets.capacity(); i++) {
+            bullets.fire(random.nextDouble() * config.windowWidth, random.nextDouble() * config.windowHeight,
+                    random.nextDouble() * config.windowWidth, random.nextDouble() * config.windowHeight,
+                    config.weaponStandardDamage);
+        }
+    }
+}
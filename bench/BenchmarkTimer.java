@@ -0,0 +1,60 @@
+/**
+ * Plain timing harness for the benchmarks in bench/. JMH only accepts benchmarks in a named package, and the game
+ * classes they measure live in the default package where no named package can import them, so each benchmark is a
+ * main that times its operations with this instead.
+ * An operation is run back to back in batches that double in size, so reading the clock costs next to nothing even
+ * for short operations, until a round of about a second is up. The first rounds only warm up the JIT.
+ */
+public class BenchmarkTimer {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final long ROUND_NANOS = 1_000_000_000L;
+
+    /** Results of the operations end up here so the JIT can't drop the work that produced them */
+    public static volatile Object sink;
+
+    /**
+     * One call of the code being measured
+     */
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Time the operation and print the average time per call over the measured rounds and in the fastest of them
+     */
+    public static void measure(String name, Operation operation) throws Exception {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(operation);
+        }
+
+        double total = 0;
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            double nanosPerCall = runRound(operation);
+            total += nanosPerCall;
+            best = Math.min(best, nanosPerCall);
+        }
+        System.out.printf("%-55s %12.3f us/op  (best round %.3f)%n", name, total / MEASURED_ROUNDS / 1e3,
+                best / 1e3);
+    }
+
+    /**
+     * @return the average nanoseconds per call in a round
+     */
+    private static double runRound(Operation operation) throws Exception {
+        long calls = 0;
+        long batch = 1;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (long i = 0; i < batch; i++) {
+                sink = operation.run();
+            }
+            calls += batch;
+            batch *= 2;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        return (double) elapsed / calls;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * Runs every benchmark in bench/ one after another. Must be run from the project root so that res/ can be found:
+ * mvn -P bench package && java -jar target/benchmarks.jar
+ */
+public class Benchmarks {
+    public static void main(String[] args) throws Exception {
+        LevelLoadBenchmark.main(args);
+        BattleRoomBenchmark.main(args);
+        KeyBulletKinBenchmark.main(args);
+        AgentEnvironmentBenchmark.main(args);
+    }
+}
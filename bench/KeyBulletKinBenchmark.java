@@ -0,0 +1,35 @@
+import bagel.util.Point;
+
+import java.util.Properties;
+
+/**
+ * Path following for enemyCount key bullet kins each walking a ten point path
+ */
+public class KeyBulletKinBenchmark {
+    private static final int PATH_POINTS = 10;
+    private static final int[] ENEMY_COUNTS = {10, 100, 1000, 10000};
+
+    public static void main(String[] args) throws Exception {
+        Properties gameProps = BenchmarkLevels.loadGameProps();
+        GameWorld world = BenchmarkLevels.init(gameProps);
+
+        // Keep the player out of the window so contact damage never ends the game mid-run
+        Player player = new Player(world, new Point(-1000, -1000));
+        String path = BenchmarkLevels.scatter(PATH_POINTS, gameProps);
+
+        for (int enemyCount : ENEMY_COUNTS) {
+            KeyBulletKin[] keyBulletKins = new KeyBulletKin[enemyCount];
+            for (int i = 0; i < enemyCount; i++) {
+                keyBulletKins[i] = new KeyBulletKin(world, path);
+                keyBulletKins[i].setActive(true);
+            }
+
+            BenchmarkTimer.measure("KeyBulletKin.update (enemyCount " + enemyCount + ")", () -> {
+                for (KeyBulletKin keyBulletKin : keyBulletKins) {
+                    keyBulletKin.update(player);
+                }
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Parsing a level and building a battle room with entityCount walls, and loading or resetting the whole game with
+ * that many walls in each battle room
+ */
+public class LevelLoadBenchmark {
+    private static final String[] BATTLE_ROOM_NAMES = {"A", "B"};
+    private static final int[] ENTITY_COUNTS = {10, 100, 1000, 10000};
+
+    public static void main(String[] args) throws Exception {
+        for (int entityCount : ENTITY_COUNTS) {
+            run(entityCount);
+        }
+    }
+
+    private static void run(int entityCount) throws Exception {
+        Properties gameProps = BenchmarkLevels.loadGameProps();
+        String walls = BenchmarkLevels.scatter(entityCount, gameProps);
+        for (String roomName : BATTLE_ROOM_NAMES) {
+            gameProps.setProperty("wall." + roomName, walls);
+        }
+        GameWorld world = BenchmarkLevels.init(gameProps);
+        LevelSpec level = LevelSpec.parse(gameProps);
+        RoomSpec roomSpec = level.getRoom(BATTLE_ROOM_NAMES[0]);
+
+        String levelFile = Files.createTempFile("level", ".bin").toString();
+        long checksum = entityCount;
+        LevelCompiler.compile(level, checksum, levelFile);
+
+        String suffix = " (entityCount " + entityCount + ")";
+        try {
+            BenchmarkTimer.measure("LevelSpec.parse" + suffix, () -> LevelSpec.parse(gameProps));
+            BenchmarkTimer.measure("LevelSpec.load" + suffix, () -> LevelSpec.load(levelFile, checksum));
+            BenchmarkTimer.measure("BattleRoom.initEntities" + suffix, () -> {
+                BattleRoom room = new BattleRoom(world, BATTLE_ROOM_NAMES[0]);
+                room.initEntities(roomSpec);
+                return room;
+            });
+            BenchmarkTimer.measure("GameWorld.loadLevel" + suffix, () -> {
+                world.loadLevel(level);
+                return null;
+            });
+            BenchmarkTimer.measure("GameWorld.resetGameState" + suffix, () -> {
+                world.resetGameState();
+                return null;
+            });
+        } finally {
+            deleteLevelFile(levelFile);
+        }
+    }
+
+    private static void deleteLevelFile(String levelFile) {
+        try {
+            Files.deleteIfExists(Paths.get(levelFile));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
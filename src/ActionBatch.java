@@ -0,0 +1,26 @@
+import bagel.Keys;
+
+/**
+ * One tick of actions for every world of an AgentEnvironment, kept in primitive arrays so it can be reused each step.
+ * Bit i of a world's buttons holds KEYS[i] down; FIRE holds the left mouse button, aimed at the world's aim point.
+ */
+public class ActionBatch {
+    public static final Keys[] KEYS = {
+            Keys.W, Keys.A, Keys.S, Keys.D, Keys.SPACE, Keys.L, Keys.E, Keys.P, Keys.R, Keys.M, Keys.K, Keys.ENTER
+    };
+    public static final int FIRE = 1 << KEYS.length;
+
+    public final int[] buttons;
+    public final double[] aimX;
+    public final double[] aimY;
+
+    public ActionBatch(int worldCount) {
+        buttons = new int[worldCount];
+        aimX = new double[worldCount];
+        aimY = new double[worldCount];
+    }
+
+    public int size() {
+        return buttons.length;
+    }
+}
@@ -0,0 +1,265 @@
+import bagel.Keys;
+import bagel.MouseButtons;
+import bagel.util.Point;
+import bagel.util.Rectangle;
+
+import java.util.Properties;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Batched headless API for automated players: reset every world, then advance them all one tick per step with one
+ * action each. Actions and observations live in preallocated primitive arrays, so stepping adds no allocation of its
+ * own beyond what the simulation itself does.
+ * The worlds are split into one contiguous partition per core. The calling thread steps or resets the first
+ * partition and a daemon thread of its own does each of the others, all meeting at a barrier before and after.
+ */
+public class AgentEnvironment implements AutoCloseable {
+    public static final int DEFAULT_MAX_BULLETS = 64;
+
+    private final GameWorld[] worlds;
+    private final ScriptedInputSource[] inputs;
+    private final Observations observations;
+    private final Thread[] workers;
+    private final CyclicBarrier stepStart;
+    private final CyclicBarrier stepEnd;
+    // Written before stepStart and only read after it, so the barrier makes them visible to the workers. While
+    // resetting there are no actions.
+    private ActionBatch stepActions;
+    private long seed;
+    private volatile RuntimeException workerFailure;
+
+    public AgentEnvironment(Properties gameProps, Properties messageProps, GameConfig config, LevelSpec level,
+                            int worldCount) {
+        this(gameProps, messageProps, config, level, worldCount, DEFAULT_MAX_BULLETS);
+    }
+
+    public AgentEnvironment(Properties gameProps, Properties messageProps, GameConfig config, LevelSpec level,
+                            int worldCount, int maxBullets) {
+        if (worldCount <= 0 || maxBullets < 0) {
+            throw new IllegalArgumentException(String.format("Invalid environment size: %d worlds, %d bullets",
+                    worldCount, maxBullets));
+        }
+
+        worlds = new GameWorld[worldCount];
+        inputs = new ScriptedInputSource[worldCount];
+        for (int i = 0; i < worldCount; i++) {
+            worlds[i] = new GameWorld(gameProps, messageProps, config, level, new NullRenderer());
+            inputs[i] = new ScriptedInputSource();
+        }
+        observations = new Observations(worldCount, maxBullets);
+        for (int i = 0; i < worldCount; i++) {
+            observe(i);
+        }
+
+        int partitions = Math.min(worldCount, Runtime.getRuntime().availableProcessors());
+        stepStart = new CyclicBarrier(partitions);
+        stepEnd = new CyclicBarrier(partitions);
+        workers = new Thread[partitions - 1];
+        for (int i = 0; i < workers.length; i++) {
+            int partition = i + 1;
+            workers[i] = new Thread(() -> runWorker(partition), "agent-worlds-" + partition);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Restart every world in the prep room. World i is seeded with seed + i, so resetting with the same seed and
+     * stepping with the same actions always plays out the same episodes.
+     * @return the observations of the restarted worlds
+     */
+    public Observations reset(long seed) {
+        this.seed = seed;
+        stepActions = null;
+        runPartitions();
+        return observations;
+    }
+
+    /**
+     * Advance every world one tick with its action from the batch
+     * @return the shared observations, overwritten by the next step or reset
+     */
+    public Observations step(ActionBatch actions) {
+        if (actions.size() != worlds.length) {
+            throw new IllegalArgumentException(String.format("Expected %d actions, got %d",
+                    worlds.length, actions.size()));
+        }
+
+        stepActions = actions;
+        runPartitions();
+        return observations;
+    }
+
+    /**
+     * Stop the worker threads. The environment cannot be stepped afterwards.
+     */
+    @Override
+    public void close() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void runPartitions() {
+        awaitBarrier(stepStart);
+        try {
+            runPartition(0);
+        } finally {
+            awaitBarrier(stepEnd);
+        }
+
+        RuntimeException failure = workerFailure;
+        if (failure != null) {
+            workerFailure = null;
+            throw failure;
+        }
+    }
+
+    private void runWorker(int partition) {
+        try {
+            while (true) {
+                stepStart.await();
+                try {
+                    runPartition(partition);
+                } catch (RuntimeException ex) {
+                    workerFailure = ex;
+                } finally {
+                    stepEnd.await();
+                }
+            }
+        } catch (InterruptedException | BrokenBarrierException ex) {
+            // The environment was closed
+        }
+    }
+
+    private static void awaitBarrier(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stepping the worlds", ex);
+        } catch (BrokenBarrierException ex) {
+            throw new IllegalStateException("The environment has been closed", ex);
+        }
+    }
+
+    private void runPartition(int partition) {
+        int partitions = workers.length + 1;
+        int start = (int) ((long) worlds.length * partition / partitions);
+        int end = (int) ((long) worlds.length * (partition + 1) / partitions);
+        ActionBatch actions = stepActions;
+        for (int i = start; i < end; i++) {
+            if (actions == null) {
+                resetWorld(i);
+            } else {
+                stepWorld(i, actions);
+            }
+            observe(i);
+        }
+    }
+
+    private void resetWorld(int i) {
+        worlds[i].resetGameState(seed + i);
+        for (Keys key : ActionBatch.KEYS) {
+            inputs[i].release(key);
+        }
+        inputs[i].setDown(MouseButtons.LEFT, false);
+        inputs[i].endFrame();
+    }
+
+    private void stepWorld(int i, ActionBatch actions) {
+        ScriptedInputSource input = inputs[i];
+        int buttons = actions.buttons[i];
+        for (int bit = 0; bit < ActionBatch.KEYS.length; bit++) {
+            input.setDown(ActionBatch.KEYS[bit], (buttons & (1 << bit)) != 0);
+        }
+        input.setDown(MouseButtons.LEFT, (buttons & ActionBatch.FIRE) != 0);
+        input.setMouse(actions.aimX[i], actions.aimY[i]);
+
+        worlds[i].tick(input);
+        input.endFrame();
+    }
+
+    private void observe(int i) {
+        Observations out = observations;
+        GameWorld world = worlds[i];
+        Player player = world.getPlayer();
+        Point position = player.getPosition();
+        out.playerX[i] = position.x;
+        out.playerY[i] = position.y;
+        out.health[i] = player.getHealth();
+        out.coins[i] = player.getCoins();
+        out.keys[i] = player.getKeys();
+        out.roomId[i] = world.getCurrentRoomId();
+        out.done[i] = world.getCurrentRoomId() == RoomRegistry.END_ROOM_ID;
+
+        int base = i * out.maxBullets;
+        out.enemyVisible[i] = false;
+        out.shooterCount[i] = 0;
+        out.fireballCount[i] = 0;
+        Room room = world.getRooms().get(world.getCurrentRoomId());
+        if (room instanceof BattleRoom) {
+            BattleRoom battleRoom = (BattleRoom) room;
+            KeyBulletKin enemy = battleRoom.getKeyBulletKin();
+            if (enemy != null && enemy.isActive() && !enemy.isDead()) {
+                out.enemyVisible[i] = true;
+                out.enemyX[i] = enemy.getPosition().x;
+                out.enemyY[i] = enemy.getPosition().y;
+            }
+
+            for (BulletKin bulletKin : battleRoom.getBulletKins()) {
+                observeShooter(out, i, bulletKin, false);
+                for (Fireball fireball : bulletKin.getFireballs()) {
+                    observeFireball(out, i, base, fireball);
+                }
+            }
+            for (AshenBulletKin ashenBulletKin : battleRoom.getAshenBulletKins()) {
+                observeShooter(out, i, ashenBulletKin, true);
+                for (Fireball fireball : ashenBulletKin.getFireballs()) {
+                    observeFireball(out, i, base, fireball);
+                }
+            }
+        }
+
+        BulletPool bullets = player.getBullets();
+        int count = 0;
+        for (int b = 0; b < bullets.size() && count < out.maxBullets; b++) {
+            if (bullets.isAlive(b)) {
+                out.bulletX[base + count] = bullets.getX(b);
+                out.bulletY[base + count] = bullets.getY(b);
+                count++;
+            }
+        }
+        out.bulletCount[i] = count;
+    }
+
+    private static void observeShooter(Observations out, int i, BulletKin shooter, boolean ashen) {
+        int count = out.shooterCount[i];
+        if (shooter.isActive() && !shooter.isDead() && count < Observations.MAX_SHOOTERS) {
+            int index = i * Observations.MAX_SHOOTERS + count;
+            out.shooterX[index] = shooter.getPosition().x;
+            out.shooterY[index] = shooter.getPosition().y;
+            out.shooterAshen[index] = ashen;
+            out.shooterCount[i] = count + 1;
+        }
+    }
+
+    private static void observeFireball(Observations out, int i, int base, Fireball fireball) {
+        int count = out.fireballCount[i];
+        if (fireball.isActive() && count < out.maxBullets) {
+            Rectangle box = fireball.getBoundingBox();
+            out.fireballX[base + count] = (box.left() + box.right()) / 2;
+            out.fireballY[base + count] = (box.top() + box.bottom()) / 2;
+            out.fireballCount[i] = count + 1;
+        }
+    }
+
+    public int getWorldCount() {
+        return worlds.length;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
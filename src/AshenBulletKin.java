@@ -0,0 +1,11 @@
+import bagel.util.Point;
+
+/**
+ * Tougher BulletKin that shoots more often and is worth more coins
+ */
+public class AshenBulletKin extends BulletKin {
+    public AshenBulletKin(GameWorld world, Point position) {
+        super(world, position, "res/ashen_bullet_kin.png", world.getConfig().ashenBulletKinHealth,
+                world.getConfig().ashenBulletKinShootFrequency, world.getConfig().ashenBulletKinCoin);
+    }
+}
@@ -0,0 +1,173 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Preloads every image and font in res/ during the prep room. Worker threads decode each PNG into its raw pixels.
+ * bagel can only create a texture from a file path, so the pixels are written to an uncompressed 32-bit TGA, which
+ * bagel loads with a plain copy instead of inflating and unfiltering the PNG. The game thread then only creates a few
+ * textures from those files per frame. Fonts can only be created on the GL thread, so they are just read once to put
+ * them in the OS file cache.
+ */
+public class AssetManager {
+    private static final String ASSET_DIRECTORY = "res";
+    private static final int UPLOADS_PER_FRAME = 2;
+
+    private static final ConcurrentLinkedQueue<Sprite> decoded = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger filesRead = new AtomicInteger();
+    private static final AtomicInteger filesWithoutTexture = new AtomicInteger();
+    private static int totalAssets = 0;
+    private static volatile int uploaded = 0;
+    private static ExecutorService workers;
+
+    /**
+     * Start reading every asset on a pool of daemon worker threads
+     */
+    public static void start() {
+        List<Path> images = new ArrayList<>();
+        List<Path> fonts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(ASSET_DIRECTORY))) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".png")) {
+                    images.add(file);
+                } else if (name.endsWith(".otf") || name.endsWith(".ttf")) {
+                    fonts.add(file);
+                }
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return;
+        }
+
+        totalAssets = images.size() + fonts.size();
+        workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "asset-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        for (Path image : images) {
+            workers.submit(() -> readImage(image));
+        }
+        // Fonts can only be created on the GL thread, so reading them just pulls them into the file cache
+        for (Path font : fonts) {
+            workers.submit(() -> readFile(font));
+        }
+        workers.shutdown();
+    }
+
+    private static void readImage(Path file) {
+        try {
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                throw new IOException(String.format("%s is not a readable image", file));
+            }
+            File pixels = File.createTempFile("sprite", ".tga");
+            pixels.deleteOnExit();
+            writeTga(image, pixels);
+
+            // Keep the same "res/name.png" form used everywhere else, so the registry sees one key per file
+            String imageFile = ASSET_DIRECTORY + "/" + file.getFileName();
+            decoded.add(new Sprite(imageFile, image.getWidth(), image.getHeight(), pixels.getPath()));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            filesWithoutTexture.incrementAndGet();
+        } finally {
+            filesRead.incrementAndGet();
+        }
+    }
+
+    /**
+     * Write an image as an uncompressed, top-down, 32-bit BGRA TGA file
+     */
+    private static void writeTga(BufferedImage image, File file) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        byte[] rowBytes = new byte[width * 4];
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            byte[] header = new byte[18];
+            header[2] = 2; // uncompressed true colour
+            header[12] = (byte) width;
+            header[13] = (byte) (width >>> 8);
+            header[14] = (byte) height;
+            header[15] = (byte) (height >>> 8);
+            header[16] = 32;
+            header[17] = 0x28; // 8 alpha bits, first row at the top
+            out.write(header);
+
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int argb = row[x];
+                    rowBytes[x * 4] = (byte) argb;
+                    rowBytes[x * 4 + 1] = (byte) (argb >>> 8);
+                    rowBytes[x * 4 + 2] = (byte) (argb >>> 16);
+                    rowBytes[x * 4 + 3] = (byte) (argb >>> 24);
+                }
+                out.write(rowBytes);
+            }
+        }
+    }
+
+    private static void readFile(Path file) {
+        try {
+            Files.readAllBytes(file);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            filesRead.incrementAndGet();
+            filesWithoutTexture.incrementAndGet();
+        }
+    }
+
+    /**
+     * Create the textures of a few images that the workers have finished decoding. Must run on the GL thread.
+     */
+    public static void update() {
+        for (int i = 0; i < UPLOADS_PER_FRAME; i++) {
+            Sprite sprite = decoded.poll();
+            if (sprite == null) {
+                return;
+            }
+
+            Sprite registered = SpriteRegistry.register(sprite);
+            if (!registered.isImageLoaded()) {
+                registered.getImage();
+            }
+            uploaded++;
+        }
+    }
+
+    public static boolean isDone() {
+        return workers == null || (filesRead.get() == totalAssets && decoded.isEmpty());
+    }
+
+    /**
+     * @return how much of the loading has finished, from 0 to 1
+     */
+    public static double getProgress() {
+        if (totalAssets == 0) {
+            return 1;
+        }
+        // Images count once their texture exists, fonts and unreadable images as soon as a worker is done with them
+        return (uploaded + filesWithoutTexture.get()) / (double) totalAssets;
+    }
+}
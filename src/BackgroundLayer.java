@@ -0,0 +1,121 @@
+import bagel.Image;
+import bagel.util.Point;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sprites that never move or change, composited into one window-sized image so a room draws them with a single call.
+ * The image is composited on a worker thread once startBaking is called, and its texture is created on the first draw
+ * after that; until then, or if baking fails, the sprites are drawn one by one.
+ */
+public class BackgroundLayer {
+    private static final ExecutorService baker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "layer-baker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final GameWorld world;
+    private final ArrayList<Sprite> sprites = new ArrayList<>();
+    private final ArrayList<Point> positions = new ArrayList<>();
+    private Future<String> bakedFile;
+    private Image baked;
+    private boolean bakeFailed = false;
+
+    public BackgroundLayer(GameWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Add a sprite to the layer. Sprites can only be added before the layer starts baking.
+     */
+    public void add(Sprite sprite, Point position) {
+        if (bakedFile != null) {
+            throw new IllegalStateException("Cannot add sprites to a layer that is already baking");
+        }
+        sprites.add(sprite);
+        positions.add(position);
+    }
+
+    /**
+     * Composite the layer on the worker thread, if it hasn't been started already
+     */
+    public void startBaking() {
+        if (bakedFile == null && !sprites.isEmpty()) {
+            bakedFile = baker.submit(this::bake);
+        }
+    }
+
+    public void draw() {
+        world.getRenderer().drawLayer(this);
+    }
+
+    /**
+     * Draw every sprite on its own, for when the layer could not be baked
+     */
+    void drawSprites(Renderer renderer) {
+        for (int i = 0; i < sprites.size(); i++) {
+            renderer.drawImage(sprites.get(i), positions.get(i).x, positions.get(i).y, RenderLayer.FLOOR);
+        }
+    }
+
+    /**
+     * Must be called on the GL thread, as the texture is created here the first time the baked file is ready
+     * @return the composited layer, or null if it hasn't been baked yet or could not be built
+     */
+    Image getBakedImage() {
+        if (baked == null && !bakeFailed && bakedFile != null && bakedFile.isDone()) {
+            try {
+                baked = new Image(bakedFile.get());
+            } catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+                bakeFailed = true;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return baked;
+    }
+
+    private String bake() throws IOException {
+        GameConfig config = world.getConfig();
+        BufferedImage layer = new BufferedImage(config.windowWidth, config.windowHeight, BufferedImage.TYPE_INT_ARGB);
+        Map<String, BufferedImage> sources = new HashMap<>();
+
+        Graphics2D graphics = layer.createGraphics();
+        try {
+            for (int i = 0; i < sprites.size(); i++) {
+                Sprite sprite = sprites.get(i);
+                BufferedImage source = sources.get(sprite.getImageFile());
+                if (source == null) {
+                    source = ImageIO.read(new File(sprite.getImageFile()));
+                    sources.put(sprite.getImageFile(), source);
+                }
+
+                // Sprites are positioned by their centre, like Image.draw
+                Point position = positions.get(i);
+                graphics.drawImage(source, (int) Math.round(position.x - sprite.getWidth() / 2),
+                        (int) Math.round(position.y - sprite.getHeight() / 2), null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        // bagel can only create textures from files
+        File file = File.createTempFile("layer", ".png");
+        file.deleteOnExit();
+        ImageIO.write(layer, "png", file);
+        return file.getPath();
+    }
+}
@@ -0,0 +1,39 @@
+import bagel.Input;
+import bagel.Keys;
+import bagel.MouseButtons;
+
+/**
+ * Input source backed by the bagel window's input for the current frame
+ */
+public class BagelInputSource implements InputSource {
+    private Input input;
+
+    public void setInput(Input input) {
+        this.input = input;
+    }
+
+    @Override
+    public boolean isDown(Keys key) {
+        return input.isDown(key);
+    }
+
+    @Override
+    public boolean wasPressed(Keys key) {
+        return input.wasPressed(key);
+    }
+
+    @Override
+    public boolean isDown(MouseButtons button) {
+        return input.isDown(button);
+    }
+
+    @Override
+    public double getMouseX() {
+        return input.getMouseX();
+    }
+
+    @Override
+    public double getMouseY() {
+        return input.getMouseY();
+    }
+}
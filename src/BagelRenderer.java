@@ -0,0 +1,31 @@
+import bagel.Image;
+
+/**
+ * Renderer that draws to the bagel window
+ */
+public class BagelRenderer implements Renderer {
+    @Override
+    public void drawImage(Sprite sprite, double x, double y, RenderLayer layer) {
+        sprite.getImage().draw(x, y);
+    }
+
+    @Override
+    public void drawLayer(BackgroundLayer layer) {
+        Image image = layer.getBakedImage();
+        if (image != null) {
+            image.drawFromTopLeft(0, 0);
+        } else {
+            layer.drawSprites(this);
+        }
+    }
+
+    @Override
+    public void drawText(String text, int fontSize, double x, double y, RenderLayer layer) {
+        FontRegistry.get(fontSize).drawString(text, x, y);
+    }
+
+    @Override
+    public double getTextWidth(String text, int fontSize) {
+        return FontRegistry.get(fontSize).getWidth(text);
+    }
+}
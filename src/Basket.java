@@ -0,0 +1,59 @@
+import bagel.util.Point;
+import bagel.util.Rectangle;
+
+/**
+ * Obstacle that blocks the player and fireballs, and breaks into coins when shot
+ */
+public class Basket {
+    private final Point position;
+    private final Sprite image;
+    private final double coinReward;
+    private boolean active = true;
+
+    public Basket(GameWorld world, Point position) {
+        this.position = position;
+        this.image = SpriteRegistry.get("res/basket.png");
+        this.coinReward = world.getConfig().basketCoin;
+    }
+
+    public void update(Player player) {
+        if (!active) return;
+
+        // Block player movement
+        if (hasCollidedWith(player)) {
+            player.move(player.getPrevPosition().x, player.getPrevPosition().y);
+        }
+    }
+
+    public void draw() {
+        if (active) {
+            image.draw(position.x, position.y);
+        }
+    }
+
+    /**
+     * Break the basket with a bullet found to hit it somewhere along the bullet's path
+     */
+    public void takeHit(Bullet bullet, Player player) {
+        bullet.deactivate();
+        active = false;
+        player.earnCoins(coinReward);
+    }
+
+    public boolean hasCollidedWith(Player player) {
+        return active && image.getBoundingBoxAt(position).intersects(
+                player.getCurrImage().getBoundingBoxAt(player.getPosition()));
+    }
+
+    public Rectangle getBoundingBox() {
+        return image.getBoundingBoxAt(position);
+    }
+
+    public void reset() {
+        active = true;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
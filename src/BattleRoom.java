@@ -1,16 +1,17 @@
-import bagel.Input;
+import bagel.util.Point;
+import bagel.util.Rectangle;
 
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.Properties;
+import java.util.List;
 
 /**
  * Room with doors that are locked until the player defeats all enemies
  */
-public class BattleRoom {
+public class BattleRoom implements Room {
     private Player player;
     private Door primaryDoor;
     private Door secondaryDoor;
+    private Door[] doors;
     private KeyBulletKin keyBulletKin;
     private ArrayList<BulletKin> bulletKins;
     private ArrayList<AshenBulletKin> ashenBulletKins;
@@ -20,12 +21,18 @@ public class BattleRoom {
     private ArrayList<Basket> baskets;
     private ArrayList<River> rivers;
     private ArrayList<Key> keys;
+    private final SpatialGrid tableGrid;
+    private final StaticCollisionLayer staticLayer;
+    private BackgroundLayer backgroundLayer;
     private boolean stopCurrentUpdateCall = false;
     private boolean isComplete = false;
-    private final String nextRoomName;
     private final String roomName;
+    private final GameWorld world;
 
-    public BattleRoom(String roomName, String nextRoomName) {
+    private static final double COLLISION_CELL_SIZE = 64;
+
+    public BattleRoom(GameWorld world, String roomName) {
+        this.world = world;
         walls = new ArrayList<>();
         tables = new ArrayList<>();
         baskets = new ArrayList<>();
@@ -34,131 +41,147 @@ public class BattleRoom {
         bulletKins = new ArrayList<>();
         ashenBulletKins = new ArrayList<>();
         keys = new ArrayList<>();
+        staticLayer = new StaticCollisionLayer(world.getConfig().windowWidth,
+                world.getConfig().windowHeight);
+        tableGrid = new SpatialGrid(world.getConfig().windowWidth, world.getConfig().windowHeight,
+                COLLISION_CELL_SIZE);
         this.roomName = roomName;
-        this.nextRoomName = nextRoomName;
     }
 
-    public void initEntities(Properties gameProperties) {
-        for (Map.Entry<Object, Object> entry: gameProperties.entrySet()) {
-            String roomSuffix = String.format(".%s", roomName);
+    @Override
+    public String getName() {
+        return roomName;
+    }
 
-            if (entry.getKey().toString().contains(roomSuffix)) {
-                String objectType = entry.getKey().toString()
-                        .substring(0, entry.getKey().toString().length() - roomSuffix.length());
-                String propertyValue = entry.getValue().toString();
+    @Override
+    public void initEntities(RoomSpec room) {
+        EntitySpec door = room.getFirst("primarydoor");
+        primaryDoor = new Door(world, door.position, door.argument, this);
+        door = room.getFirst("secondarydoor");
+        secondaryDoor = new Door(world, door.position, door.argument, this);
+        doors = new Door[] {primaryDoor, secondaryDoor};
+
+        if (!room.get("keyBulletKin").isEmpty()) {
+            ArrayList<Point> path = new ArrayList<>();
+            for (EntitySpec pathPoint : room.get("keyBulletKin")) {
+                path.add(pathPoint.position);
+            }
+            keyBulletKin = new KeyBulletKin(world, path);
+        }
 
-                if (propertyValue.equals("0")) {
-                    continue;
-                }
+        for (EntitySpec entity : room.get("bulletKin")) {
+            bulletKins.add(new BulletKin(world, entity.position));
+        }
+        for (EntitySpec entity : room.get("ashenBulletKin")) {
+            ashenBulletKins.add(new AshenBulletKin(world, entity.position));
+        }
+        for (EntitySpec entity : room.get("wall")) {
+            walls.add(new Wall(entity.position));
+        }
+        for (EntitySpec entity : room.get("table")) {
+            tables.add(new Table(entity.position));
+        }
+        for (EntitySpec entity : room.get("basket")) {
+            baskets.add(new Basket(world, entity.position));
+        }
+        for (EntitySpec entity : room.get("treasurebox")) {
+            treasureBoxes.add(new TreasureBox(entity.position, entity.value));
+        }
+        for (EntitySpec entity : room.get("river")) {
+            rivers.add(new River(entity.position));
+        }
 
-                String[] coordinates;
-                for (String coords: propertyValue.split(";")) {
-                    switch (objectType) {
-                        case "primarydoor":
-                            coordinates = propertyValue.split(",");
-                            primaryDoor = new Door(IOUtils.parseCoords(propertyValue), coordinates[2], this);
-                            break;
-                        case "secondarydoor":
-                            coordinates = propertyValue.split(",");
-                            secondaryDoor = new Door(IOUtils.parseCoords(propertyValue), coordinates[2], this);
-                            break;
-                        case "keyBulletKin":
-                            keyBulletKin = new KeyBulletKin(propertyValue);
-                            break;
-                        case "bulletKin":
-                            bulletKins.add(new BulletKin(IOUtils.parseCoords(coords)));
-                            break;
-                        case "ashenBulletKin":
-                            ashenBulletKins.add(new AshenBulletKin(IOUtils.parseCoords(coords)));
-                            break;
-                        case "wall":
-                            walls.add(new Wall(IOUtils.parseCoords(coords)));
-                            break;
-                        case "table":
-                            tables.add(new Table(IOUtils.parseCoords(coords)));
-                            break;
-                        case "basket":
-                            baskets.add(new Basket(IOUtils.parseCoords(coords)));
-                            break;
-                        case "treasurebox":
-                            TreasureBox treasureBox = new TreasureBox(IOUtils.parseCoords(coords),
-                                    Double.parseDouble(coords.split(",")[2]));
-                            treasureBoxes.add(treasureBox);
-                            break;
-                        case "river":
-                            rivers.add(new River(IOUtils.parseCoords(coords)));
-                            break;
-                        default:
-                    }
-                }
-            }
+        buildCollisionGrids();
+        // Walls and rivers never change once loaded, so every build of this room shares one baked layer
+        backgroundLayer = world.getRooms().getBackgroundLayer(world.getRooms().getId(roomName));
+    }
+
+    /**
+     * Capture the static walls, rivers and doors and index the tables by position. None of them move, so this
+     * only needs to happen once per room; destroyed tables stay in the grid and are skipped by their own active checks.
+     */
+    private void buildCollisionGrids() {
+        staticLayer.clear();
+        for (Wall wall : walls) {
+            staticLayer.addSolid(wall.getBoundingBox());
+        }
+        for (River river : rivers) {
+            staticLayer.addHazard(river.getBoundingBox());
+        }
+        staticLayer.addDoor(primaryDoor);
+        staticLayer.addDoor(secondaryDoor);
+
+        tableGrid.clear();
+        for (int i = 0; i < tables.size(); i++) {
+            tableGrid.insert(i, tables.get(i).getBoundingBox());
         }
     }
 
-    public void update(Input input) {
-        // Update and draw doors
+    @Override
+    public void update(InputSource input) {
+        // Update doors
+        FrameProfiler.begin(FrameProfiler.Stage.DOORS);
         primaryDoor.update(player);
-        primaryDoor.draw();
         if (stopUpdatingEarlyIfNeeded()) {
+            FrameProfiler.end(FrameProfiler.Stage.DOORS);
             return;
         }
 
         secondaryDoor.update(player);
-        secondaryDoor.draw();
+        FrameProfiler.end(FrameProfiler.Stage.DOORS);
         if (stopUpdatingEarlyIfNeeded()) {
             return;
         }
 
-        // Update and draw obstacles
-        for (Wall wall: walls) {
-            wall.update(player);
-            wall.draw();
+        // Update obstacles
+        FrameProfiler.begin(FrameProfiler.Stage.OBSTACLES);
+        if (player != null && staticLayer.hitsSolid(getPlayerBoundingBox())) {
+            player.move(player.getPrevPosition().x, player.getPrevPosition().y);
         }
 
         for (Table table: tables) {
             if (table.isActive()) {
                 table.update(player);
-                table.draw();
             }
         }
 
         for (Basket basket: baskets) {
             if (basket.isActive()) {
                 basket.update(player);
-                basket.draw();
             }
         }
 
-        for (River river: rivers) {
-            river.update(player);
-            river.draw();
+        if (player != null) {
+            int riversTouched = staticLayer.countHazards(getPlayerBoundingBox());
+            for (int i = 0; i < riversTouched; i++) {
+                player.receiveDamage(world.getConfig().riverDamagePerFrame);
+            }
         }
+        FrameProfiler.end(FrameProfiler.Stage.OBSTACLES);
 
-        // Update and draw enemies
+        // Update enemies
+        FrameProfiler.begin(FrameProfiler.Stage.ENEMIES);
         if (keyBulletKin != null && keyBulletKin.isActive()) {
             keyBulletKin.update(player);
-            keyBulletKin.draw();
         }
 
         for (BulletKin bulletKin : bulletKins) {
             if (bulletKin.isActive()) {
                 bulletKin.update(player);
-                bulletKin.draw();
             }
         }
 
         for (AshenBulletKin ashenBulletKin : ashenBulletKins) {
             if (ashenBulletKin.isActive()) {
                 ashenBulletKin.update(player);
-                ashenBulletKin.draw();
             }
         }
+        FrameProfiler.end(FrameProfiler.Stage.ENEMIES);
 
         // Update treasure boxes
         for (TreasureBox treasureBox: treasureBoxes) {
             if (treasureBox.isActive()) {
                 treasureBox.update(input, player);
-                treasureBox.draw();
             }
         }
 
@@ -166,7 +189,6 @@ public class BattleRoom {
         keys.removeIf(key -> {
             if (key.isActive()) {
                 key.update(player);
-                key.draw();
                 return false;
             }
             return true;
@@ -174,13 +196,16 @@ public class BattleRoom {
 
         // Handle bullet collisions
         if (player != null) {
+            FrameProfiler.begin(FrameProfiler.Stage.COLLISIONS);
             handleBulletCollisions();
+            FrameProfiler.end(FrameProfiler.Stage.COLLISIONS);
         }
 
-        // Update and draw player
+        // Update player
         if (player != null) {
+            FrameProfiler.begin(FrameProfiler.Stage.PLAYER);
             player.update(input);
-            player.draw();
+            FrameProfiler.end(FrameProfiler.Stage.PLAYER);
         }
 
         // Check if all enemies defeated
@@ -190,8 +215,10 @@ public class BattleRoom {
         }
     }
 
-    private void handleBulletCollisions() {
-        for (Bullet bullet : player.getBullets()) {
+    void handleBulletCollisions() {
+        BulletPool bullets = player.getBullets();
+        for (int i = 0; i < bullets.size(); i++) {
+            Bullet bullet = bullets.get(i);
             if (!bullet.isActive()) continue;
 
             // Check enemy collisions
@@ -223,32 +250,45 @@ public class BattleRoom {
                 }
             }
 
-            // Check obstacle collisions
-            for (Table table : tables) {
-                if (table.checkBulletCollision(bullet)) {
-                    break;
+            // Sweep the bullet from where it started this tick, so fast bullets stop at the first basket, table,
+            // wall or locked door along their path instead of passing through it
+            double dx = bullet.getDx();
+            double dy = bullet.getDy();
+            double left = bullet.left() - dx;
+            double top = bullet.top() - dy;
+            double right = bullet.right() - dx;
+            double bottom = bullet.bottom() - dy;
+            double wallHit = staticLayer.sweepBlocked(left, top, right, bottom, dx, dy);
+
+            Table firstTable = null;
+            double tableHit = wallHit;
+            int candidates = tableGrid.query(Math.min(left, left + dx), Math.min(top, top + dy),
+                    Math.max(right, right + dx), Math.max(bottom, bottom + dy));
+            for (int j = 0; j < candidates; j++) {
+                Table table = tables.get(tableGrid.getResult(j));
+                if (table.isActive()) {
+                    double hit = StaticCollisionLayer.sweep(left, top, right, bottom, dx, dy, table.getBoundingBox());
+                    if (hit < tableHit) {
+                        tableHit = hit;
+                        firstTable = table;
+                    }
                 }
             }
-
+            Basket firstBasket = null;
             for (Basket basket : baskets) {
-                if (basket.checkBulletCollision(bullet, player)) {
-                    break;
-                }
-            }
-
-            // Check wall collisions
-            for (Wall wall : walls) {
-                if (bullet.hasCollidedWith(wall.getBoundingBox())) {
-                    bullet.deactivate();
-                    break;
+                if (basket.isActive()) {
+                    double hit = StaticCollisionLayer.sweep(left, top, right, bottom, dx, dy, basket.getBoundingBox());
+                    if (hit < tableHit) {
+                        tableHit = hit;
+                        firstBasket = basket;
+                    }
                 }
             }
-
-            // Check door collisions
-            if (!primaryDoor.isUnlocked() && bullet.hasCollidedWith(primaryDoor.getBoundingBox())) {
-                bullet.deactivate();
-            }
-            if (!secondaryDoor.isUnlocked() && bullet.hasCollidedWith(secondaryDoor.getBoundingBox())) {
+            if (firstBasket != null) {
+                firstBasket.takeHit(bullet, player);
+            } else if (firstTable != null) {
+                firstTable.takeHit(bullet);
+            } else if (wallHit != StaticCollisionLayer.NO_HIT) {
                 bullet.deactivate();
             }
         }
@@ -258,69 +298,168 @@ public class BattleRoom {
             for (Fireball fireball : bulletKin.getFireballs()) {
                 if (!fireball.isActive()) continue;
 
-                for (Table table : tables) {
-                    if (table.checkFireballCollision(fireball.getBoundingBox())) {
-                        fireball.deactivate();
-                        break;
-                    }
-                }
+                handleFireballCollisions(fireball);
+            }
+        }
 
-                for (Basket basket : baskets) {
-                    if (basket.checkFireballCollision(fireball.getBoundingBox())) {
-                        fireball.deactivate();
-                        break;
-                    }
-                }
+        for (AshenBulletKin ashenBulletKin : ashenBulletKins) {
+            for (Fireball fireball : ashenBulletKin.getFireballs()) {
+                if (!fireball.isActive()) continue;
 
-                for (Wall wall : walls) {
-                    if (fireball.hasCollidedWith(wall.getBoundingBox())) {
-                        fireball.deactivate();
-                        break;
-                    }
-                }
+                handleFireballCollisions(fireball);
+            }
+        }
+    }
 
-                if (!primaryDoor.isUnlocked() && fireball.hasCollidedWith(primaryDoor.getBoundingBox())) {
-                    fireball.deactivate();
-                }
-                if (!secondaryDoor.isUnlocked() && fireball.hasCollidedWith(secondaryDoor.getBoundingBox())) {
-                    fireball.deactivate();
-                }
+    private void handleFireballCollisions(Fireball fireball) {
+        // Sweep the fireball from where it started this tick, so fast ones can't pass through thin obstacles
+        Rectangle fireballBox = fireball.getBoundingBox();
+        double dx = fireball.getDx();
+        double dy = fireball.getDy();
+        double left = fireballBox.left() - dx;
+        double top = fireballBox.top() - dy;
+        double right = fireballBox.right() - dx;
+        double bottom = fireballBox.bottom() - dy;
+
+        if (staticLayer.sweepBlocked(left, top, right, bottom, dx, dy) != StaticCollisionLayer.NO_HIT) {
+            fireball.deactivate();
+            return;
+        }
+
+        int candidates = tableGrid.query(Math.min(left, left + dx), Math.min(top, top + dy),
+                Math.max(right, right + dx), Math.max(bottom, bottom + dy));
+        for (int i = 0; i < candidates; i++) {
+            Table table = tables.get(tableGrid.getResult(i));
+            if (table.isActive() && StaticCollisionLayer.sweep(left, top, right, bottom, dx, dy,
+                    table.getBoundingBox()) != StaticCollisionLayer.NO_HIT) {
+                fireball.deactivate();
+                return;
+            }
+        }
+
+        // Fireballs burn out against baskets without breaking them
+        for (Basket basket : baskets) {
+            if (basket.isActive() && StaticCollisionLayer.sweep(left, top, right, bottom, dx, dy,
+                    basket.getBoundingBox()) != StaticCollisionLayer.NO_HIT) {
+                fireball.deactivate();
+                return;
             }
         }
+    }
+
+    private Rectangle getPlayerBoundingBox() {
+        return player.getCurrImage().getBoundingBoxAt(player.getPosition());
+    }
 
+    /**
+     * Restore the room to how it was when the level was loaded, keeping the parsed static geometry
+     */
+    @Override
+    public void reset() {
+        player = null;
+        stopCurrentUpdateCall = false;
+        isComplete = false;
+
+        primaryDoor.reset();
+        secondaryDoor.reset();
+        if (keyBulletKin != null) {
+            keyBulletKin.reset();
+        }
+        for (BulletKin bulletKin : bulletKins) {
+            bulletKin.reset();
+        }
         for (AshenBulletKin ashenBulletKin : ashenBulletKins) {
-            for (Fireball fireball : ashenBulletKin.getFireballs()) {
-                if (!fireball.isActive()) continue;
+            ashenBulletKin.reset();
+        }
+        for (Table table : tables) {
+            table.reset();
+        }
+        for (Basket basket : baskets) {
+            basket.reset();
+        }
+        for (TreasureBox treasureBox : treasureBoxes) {
+            treasureBox.reset();
+        }
+        keys.clear();
+    }
 
-                for (Table table : tables) {
-                    if (table.checkFireballCollision(fireball.getBoundingBox())) {
-                        fireball.deactivate();
-                        break;
-                    }
-                }
+    /**
+     * A completed room with no keys left on the floor has nothing left to fight or pick up, so only the destroyed
+     * tables and opened treasure boxes need to be remembered
+     */
+    @Override
+    public boolean canEvict() {
+        return isComplete && keys.isEmpty();
+    }
 
-                for (Basket basket : baskets) {
-                    if (basket.checkFireballCollision(fireball.getBoundingBox())) {
-                        fireball.deactivate();
-                        break;
-                    }
-                }
+    public BattleRoomState saveState() {
+        boolean[] tablesActive = new boolean[tables.size()];
+        for (int i = 0; i < tables.size(); i++) {
+            tablesActive[i] = tables.get(i).isActive();
+        }
+        boolean[] treasureBoxesActive = new boolean[treasureBoxes.size()];
+        for (int i = 0; i < treasureBoxes.size(); i++) {
+            treasureBoxesActive[i] = treasureBoxes.get(i).isActive();
+        }
+        return new BattleRoomState(tablesActive, treasureBoxesActive);
+    }
 
-                for (Wall wall : walls) {
-                    if (fireball.hasCollidedWith(wall.getBoundingBox())) {
-                        fireball.deactivate();
-                        break;
-                    }
-                }
+    /**
+     * Apply a saved state to a freshly built room. Its enemies stay inactive, as they were all defeated.
+     */
+    public void restoreState(BattleRoomState state) {
+        for (int i = 0; i < tables.size(); i++) {
+            tables.get(i).setActive(state.tablesActive[i]);
+        }
+        for (int i = 0; i < treasureBoxes.size(); i++) {
+            treasureBoxes.get(i).setActive(state.treasureBoxesActive[i]);
+        }
+        setComplete(true);
+        unlockAllDoors();
+    }
 
-                if (!primaryDoor.isUnlocked() && fireball.hasCollidedWith(primaryDoor.getBoundingBox())) {
-                    fireball.deactivate();
-                }
-                if (!secondaryDoor.isUnlocked() && fireball.hasCollidedWith(secondaryDoor.getBoundingBox())) {
-                    fireball.deactivate();
-                }
+    @Override
+    public void draw() {
+        primaryDoor.draw();
+        secondaryDoor.draw();
+        backgroundLayer.draw();
+        for (Table table : tables) {
+            if (table.isActive()) {
+                table.draw();
+            }
+        }
+
+        for (Basket basket : baskets) {
+            if (basket.isActive()) {
+                basket.draw();
             }
         }
+        if (keyBulletKin != null) {
+            keyBulletKin.draw();
+        }
+        for (BulletKin bulletKin : bulletKins) {
+            if (bulletKin.isActive()) {
+                bulletKin.draw();
+            }
+        }
+        for (AshenBulletKin ashenBulletKin : ashenBulletKins) {
+            if (ashenBulletKin.isActive()) {
+                ashenBulletKin.draw();
+            }
+        }
+        for (TreasureBox treasureBox : treasureBoxes) {
+            if (treasureBox.isActive()) {
+                treasureBox.draw();
+            }
+        }
+        for (Key key : keys) {
+            if (key.isActive()) {
+                key.draw();
+            }
+        }
+        if (player != null) {
+            player.draw();
+        }
     }
 
     private boolean stopUpdatingEarlyIfNeeded() {
@@ -332,22 +471,37 @@ public class BattleRoom {
         return false;
     }
 
+    @Override
     public void stopCurrentUpdateCall() {
         stopCurrentUpdateCall = true;
     }
 
+    @Override
     public void setPlayer(Player player) {
         this.player = player;
     }
 
-    public Door findDoorByDestination(String roomName) {
-        if (primaryDoor.toRoomName.equals(roomName)) {
+    @Override
+    public Door findDoorByDestination(int roomId) {
+        if (primaryDoor.getToRoomId() == roomId) {
             return primaryDoor;
         } else {
             return secondaryDoor;
         }
     }
 
+    @Override
+    public Door[] getDoors() {
+        return doors;
+    }
+
+    @Override
+    public void prepareEntryDoor(Door door) {
+        if (!isComplete()) {
+            door.setShouldLockAgain();
+        }
+    }
+
     private void unlockAllDoors() {
         primaryDoor.unlock(false);
         secondaryDoor.unlock(false);
@@ -357,6 +511,21 @@ public class BattleRoom {
         return isComplete;
     }
 
+    /**
+     * @return the room's KeyBulletKin, or null if it has none
+     */
+    public KeyBulletKin getKeyBulletKin() {
+        return keyBulletKin;
+    }
+
+    public List<BulletKin> getBulletKins() {
+        return bulletKins;
+    }
+
+    public List<AshenBulletKin> getAshenBulletKins() {
+        return ashenBulletKins;
+    }
+
     public void setComplete(boolean complete) {
         isComplete = complete;
     }
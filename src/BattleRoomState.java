@@ -0,0 +1,12 @@
+/**
+ * Compact record of a completed battle room that has been evicted from memory: only what the player changed in it
+ */
+public class BattleRoomState {
+    final boolean[] tablesActive;
+    final boolean[] treasureBoxesActive;
+
+    BattleRoomState(boolean[] tablesActive, boolean[] treasureBoxesActive) {
+        this.tablesActive = tablesActive;
+        this.treasureBoxesActive = treasureBoxesActive;
+    }
+}
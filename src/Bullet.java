@@ -1,77 +1,79 @@
-import bagel.Image;
-import bagel.Window;
 import bagel.util.Point;
 import bagel.util.Rectangle;
 
 /**
- * Projectile fired by the player that damages enemies and destroys certain objects
+ * Projectile fired by the player that damages enemies and destroys certain objects.
+ * A Bullet is a view onto one slot of a BulletPool, so it holds no state of its own.
  */
 public class Bullet {
-    private Point position;
-    private final double dx;
-    private final double dy;
-    private final double speed;
-    private final int damage;
-    private boolean active = true;
-    private final Image image;
-
-    public Bullet(Point startPos, Point targetPos, int damage) {
-        this.position = new Point(startPos.x, startPos.y);
-        this.damage = damage;
-        this.image = new Image("res/bullet.png");
-        this.speed = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("bulletSpeed"));
-
-        // Calculate direction vector
-        double dirX = targetPos.x - startPos.x;
-        double dirY = targetPos.y - startPos.y;
-        double length = Math.sqrt(dirX * dirX + dirY * dirY);
-
-        // Normalize and apply speed
-        if (length > 0) {
-            this.dx = (dirX / length) * speed;
-            this.dy = (dirY / length) * speed;
-        } else {
-            this.dx = 0;
-            this.dy = 0;
-        }
-    }
-
-    public void update() {
-        if (!active) return;
+    public static final String IMAGE_FILE = "res/bullet.png";
 
-        // Move bullet
-        position = new Point(position.x + dx, position.y + dy);
+    private final BulletPool pool;
+    private int index;
 
-        // Deactivate if out of bounds
-        if (position.x < 0 || position.x > Window.getWidth() ||
-                position.y < 0 || position.y > Window.getHeight()) {
-            active = false;
-        }
+    Bullet(BulletPool pool) {
+        this.pool = pool;
     }
 
-    public void draw() {
-        if (active) {
-            image.draw(position.x, position.y);
-        }
+    void setIndex(int index) {
+        this.index = index;
     }
 
     public boolean hasCollidedWith(Rectangle boundingBox) {
-        return active && image.getBoundingBoxAt(position).intersects(boundingBox);
+        if (!isActive()) {
+            return false;
+        }
+
+        double posX = pool.getX(index);
+        double posY = pool.getY(index);
+        return posX - pool.getHalfWidth() < boundingBox.right() && posX + pool.getHalfWidth() > boundingBox.left()
+                && posY - pool.getHalfHeight() < boundingBox.bottom() && posY + pool.getHalfHeight() > boundingBox.top();
     }
 
     public void deactivate() {
-        active = false;
+        pool.deactivate(index);
     }
 
     public boolean isActive() {
-        return active;
+        return pool.isAlive(index);
     }
 
     public int getDamage() {
-        return damage;
+        return pool.getDamage(index);
+    }
+
+    public double left() {
+        return pool.getX(index) - pool.getHalfWidth();
+    }
+
+    public double right() {
+        return pool.getX(index) + pool.getHalfWidth();
+    }
+
+    public double top() {
+        return pool.getY(index) - pool.getHalfHeight();
+    }
+
+    public double bottom() {
+        return pool.getY(index) + pool.getHalfHeight();
+    }
+
+    /**
+     * @return how far the bullet moved along x in the last update
+     */
+    public double getDx() {
+        return pool.getDx(index);
+    }
+
+    public double getDy() {
+        return pool.getDy(index);
+    }
+
+    public Point getPosition() {
+        return new Point(pool.getX(index), pool.getY(index));
     }
 
     public Rectangle getBoundingBox() {
-        return image.getBoundingBoxAt(position);
+        return pool.getImage().getBoundingBoxAt(getPosition());
     }
-}
\ No newline at end of file
+}
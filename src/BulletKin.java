@@ -0,0 +1,131 @@
+import bagel.util.Point;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Stationary enemy that shoots fireballs at the player at a fixed rate. Each one waits a random part of its period
+ * before its first shot, so the enemies in a room don't all fire together. The wait is drawn from the world's seed and
+ * the spawn point, so it is the same every time a game with that seed is played.
+ */
+public class BulletKin {
+    private final GameWorld world;
+    private final Point position;
+    private final Sprite image;
+    private final double maxHealth;
+    private final int shootFrequency;
+    private final double coinReward;
+    private final ArrayList<Fireball> fireballs = new ArrayList<>();
+    private final Random random = new Random();
+    private double health;
+    private int shootCooldown;
+    private boolean active = false;
+    private boolean dead = false;
+
+    public BulletKin(GameWorld world, Point position) {
+        this(world, position, "res/bullet_kin.png", world.getConfig().bulletKinHealth,
+                world.getConfig().bulletKinShootFrequency, world.getConfig().bulletKinCoin);
+    }
+
+    protected BulletKin(GameWorld world, Point position, String imageFile, double health, int shootFrequency,
+                        double coinReward) {
+        this.world = world;
+        this.position = position;
+        this.image = SpriteRegistry.get(imageFile);
+        this.maxHealth = health;
+        this.shootFrequency = Math.max(shootFrequency, 1);
+        this.coinReward = coinReward;
+        this.health = health;
+        this.shootCooldown = firstShotDelay();
+    }
+
+    private int firstShotDelay() {
+        random.setSeed(world.getSeed() ^ (31L * Double.hashCode(position.x) + Double.hashCode(position.y)));
+        return 1 + random.nextInt(shootFrequency);
+    }
+
+    /**
+     * Restore the enemy to how it was when the level was loaded, keeping its fireballs for reuse
+     */
+    public void reset() {
+        health = maxHealth;
+        shootCooldown = firstShotDelay();
+        active = false;
+        dead = false;
+        for (Fireball fireball : fireballs) {
+            fireball.deactivate();
+        }
+    }
+
+    public void update(Player player) {
+        if (!active) return;
+
+        // Fireballs already in flight keep going after the enemy dies
+        for (Fireball fireball : fireballs) {
+            fireball.update(player);
+        }
+
+        if (!dead && player != null && --shootCooldown <= 0) {
+            shoot(player.getPosition());
+            shootCooldown = shootFrequency;
+        }
+    }
+
+    private void shoot(Point target) {
+        for (Fireball fireball : fireballs) {
+            if (!fireball.isActive()) {
+                fireball.fire(position, target);
+                return;
+            }
+        }
+        Fireball fireball = new Fireball(world);
+        fireball.fire(position, target);
+        fireballs.add(fireball);
+    }
+
+    public void draw() {
+        if (!dead) {
+            image.draw(position.x, position.y, RenderLayer.CHARACTERS);
+        }
+        for (Fireball fireball : fireballs) {
+            fireball.draw();
+        }
+    }
+
+    public boolean checkBulletCollision(Bullet bullet) {
+        if (active && !dead && bullet.hasCollidedWith(image.getBoundingBoxAt(position))) {
+            health -= bullet.getDamage();
+            bullet.deactivate();
+
+            if (health <= 0) {
+                dead = true;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public ArrayList<Fireball> getFireballs() {
+        return fireballs;
+    }
+
+    public double getCoinReward() {
+        return coinReward;
+    }
+
+    public boolean isDead() {
+        return dead;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public Point getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Fixed-capacity store of the player's bullets kept as parallel arrays, so firing and moving bullets never allocates
+ */
+public class BulletPool {
+    public static final int DEFAULT_CAPACITY = 16384;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] dx;
+    private final double[] dy;
+    private final int[] damage;
+    private final boolean[] alive;
+    private int count = 0;
+
+    private final Sprite image;
+    private final double halfWidth;
+    private final double halfHeight;
+    private final double speed;
+    private final double maxX;
+    private final double maxY;
+    private final Bullet cursor;
+
+    public BulletPool(GameWorld world) {
+        this(world, DEFAULT_CAPACITY);
+    }
+
+    public BulletPool(GameWorld world, int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+        damage = new int[capacity];
+        alive = new boolean[capacity];
+
+        image = SpriteRegistry.get(Bullet.IMAGE_FILE);
+        halfWidth = image.getWidth() / 2;
+        halfHeight = image.getHeight() / 2;
+        speed = world.getConfig().bulletSpeed;
+        maxX = world.getConfig().windowWidth;
+        maxY = world.getConfig().windowHeight;
+        cursor = new Bullet(this);
+    }
+
+    /**
+     * Fire a bullet from the start position towards the target
+     * @return false if the pool is full and the shot was dropped
+     */
+    public boolean fire(double startX, double startY, double targetX, double targetY, int bulletDamage) {
+        if (count == x.length) {
+            return false;
+        }
+
+        // Calculate direction vector
+        double dirX = targetX - startX;
+        double dirY = targetY - startY;
+        double length = Math.sqrt(dirX * dirX + dirY * dirY);
+
+        int i = count++;
+        x[i] = startX;
+        y[i] = startY;
+        // Normalize and apply speed
+        dx[i] = length > 0 ? (dirX / length) * speed : 0;
+        dy[i] = length > 0 ? (dirY / length) * speed : 0;
+        damage[i] = bulletDamage;
+        alive[i] = true;
+        return true;
+    }
+
+    /**
+     * Move every live bullet and remove the ones that were deactivated or left the window
+     */
+    public void update() {
+        int i = 0;
+        while (i < count) {
+            if (alive[i]) {
+                x[i] += dx[i];
+                y[i] += dy[i];
+
+                // Deactivate if out of bounds
+                if (x[i] < 0 || x[i] > maxX || y[i] < 0 || y[i] > maxY) {
+                    alive[i] = false;
+                }
+            }
+
+            if (alive[i]) {
+                i++;
+            } else {
+                remove(i);
+            }
+        }
+    }
+
+    public void draw() {
+        for (int i = 0; i < count; i++) {
+            if (alive[i]) {
+                image.drawMoving(x[i] - dx[i], y[i] - dy[i], x[i], y[i], RenderLayer.PROJECTILES);
+            }
+        }
+    }
+
+    /**
+     * Swap the last bullet into the given slot
+     */
+    private void remove(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        dx[i] = dx[last];
+        dy[i] = dy[last];
+        damage[i] = damage[last];
+        alive[i] = alive[last];
+        alive[last] = false;
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            alive[i] = false;
+        }
+        count = 0;
+    }
+
+    /**
+     * @return the number of occupied slots, including bullets deactivated since the last update
+     */
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Point the shared bullet view at the given slot. The returned view is only valid until the next call.
+     */
+    public Bullet get(int index) {
+        cursor.setIndex(index);
+        return cursor;
+    }
+
+    double getX(int index) {
+        return x[index];
+    }
+
+    double getY(int index) {
+        return y[index];
+    }
+
+    double getDx(int index) {
+        return dx[index];
+    }
+
+    double getDy(int index) {
+        return dy[index];
+    }
+
+    /**
+     * Replace the bullet in the given slot, which must be below the new size set with setSize
+     */
+    void set(int index, double bulletX, double bulletY, double bulletDx, double bulletDy, int bulletDamage) {
+        x[index] = bulletX;
+        y[index] = bulletY;
+        dx[index] = bulletDx;
+        dy[index] = bulletDy;
+        damage[index] = bulletDamage;
+        alive[index] = true;
+    }
+
+    void setSize(int size) {
+        for (int i = size; i < count; i++) {
+            alive[i] = false;
+        }
+        count = size;
+    }
+
+    int getDamage(int index) {
+        return damage[index];
+    }
+
+    boolean isAlive(int index) {
+        return alive[index];
+    }
+
+    void deactivate(int index) {
+        alive[index] = false;
+    }
+
+    /**
+     * Move a bullet without changing its velocity, e.g. to test it against something at a point along its path
+     */
+    void moveTo(int index, double bulletX, double bulletY) {
+        x[index] = bulletX;
+        y[index] = bulletY;
+    }
+
+    Sprite getImage() {
+        return image;
+    }
+
+    double getHalfWidth() {
+        return halfWidth;
+    }
+
+    double getHalfHeight() {
+        return halfHeight;
+    }
+}
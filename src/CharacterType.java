@@ -0,0 +1,8 @@
+/**
+ * Enum for character types
+ */
+public enum CharacterType {
+    NONE,
+    ROBOT,
+    MARINE
+}
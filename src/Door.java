@@ -1,4 +1,3 @@
-import bagel.Image;
 import bagel.util.Point;
 import bagel.util.Rectangle;
 
@@ -6,24 +5,30 @@ import bagel.util.Rectangle;
  * Door which can be locked or unlocked, allows the player to move to the room it's connected to
  */
 public class Door {
+    private final GameWorld world;
     private final Point position;
-    private Image image;
+    private Sprite image;
     public final String toRoomName;
+    private int toRoomId = -1;
     public BattleRoom battleRoom;
     private boolean unlocked = false;
     private boolean justEntered = false;
     private boolean shouldLockAgain = false;
 
-    private static final Image LOCKED = new Image("res/locked_door.png");
-    private static final Image UNLOCKED = new Image("res/unlocked_door.png");
+    private static final double PREFETCH_DISTANCE = 150;
 
-    public Door(Point position, String toRoomName) {
+    private static final Sprite LOCKED = SpriteRegistry.get("res/locked_door.png");
+    private static final Sprite UNLOCKED = SpriteRegistry.get("res/unlocked_door.png");
+
+    public Door(GameWorld world, Point position, String toRoomName) {
+        this.world = world;
         this.position = position;
         this.image = LOCKED;
         this.toRoomName = toRoomName;
     }
 
-    public Door(Point position, String toRoomName, BattleRoom battleRoom) {
+    public Door(GameWorld world, Point position, String toRoomName, BattleRoom battleRoom) {
+        this.world = world;
         this.position = position;
         this.image = LOCKED;
         this.toRoomName = toRoomName;
@@ -31,6 +36,14 @@ public class Door {
     }
 
     public void update(Player player) {
+        // Build the room behind this door before the player reaches it. This runs on the tick thread, so it moves
+        // the cost of building to a tick before the room change rather than removing it.
+        double dx = player.getPosition().x - position.x;
+        double dy = player.getPosition().y - position.y;
+        if (dx * dx + dy * dy < PREFETCH_DISTANCE * PREFETCH_DISTANCE) {
+            world.prefetchRoom(toRoomId);
+        }
+
         if (hasCollidedWith(player)) {
             onCollideWith(player);
         } else {
@@ -39,7 +52,7 @@ public class Door {
     }
 
     public void draw() {
-        image.draw(position.x, position.y);
+        image.draw(position.x, position.y, RenderLayer.FLOOR);
     }
 
     public void unlock(boolean justEntered) {
@@ -55,7 +68,7 @@ public class Door {
 
     private void onCollideWith(Player player) {
         if (unlocked && !justEntered) {
-            ShadowDungeon.changeRoom(toRoomName);
+            world.changeRoom(toRoomId);
         }
         if (!unlocked) {
             player.move(player.getPrevPosition().x, player.getPrevPosition().y);
@@ -74,11 +87,32 @@ public class Door {
         }
     }
 
+    public void reset() {
+        unlocked = false;
+        justEntered = false;
+        shouldLockAgain = false;
+        image = LOCKED;
+    }
+
     public void lock() {
         unlocked = false;
         image = LOCKED;
     }
 
+    /**
+     * @return the door's lock state packed into three bits, for the RewindBuffer
+     */
+    int getStateBits() {
+        return (unlocked ? 1 : 0) | (justEntered ? 2 : 0) | (shouldLockAgain ? 4 : 0);
+    }
+
+    void setStateBits(int bits) {
+        unlocked = (bits & 1) != 0;
+        justEntered = (bits & 2) != 0;
+        shouldLockAgain = (bits & 4) != 0;
+        image = unlocked ? UNLOCKED : LOCKED;
+    }
+
     public boolean isUnlocked() {
         return unlocked;
     }
@@ -87,6 +121,14 @@ public class Door {
         this.shouldLockAgain = true;
     }
 
+    public int getToRoomId() {
+        return toRoomId;
+    }
+
+    public void setToRoomId(int toRoomId) {
+        this.toRoomId = toRoomId;
+    }
+
     public Point getPosition() {
         return position;
     }
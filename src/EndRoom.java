@@ -1,61 +1,60 @@
-import bagel.Input;
 import bagel.Keys;
 
-import java.util.Map;
-import java.util.Properties;
-
 /**
  * Room where the game ends when the player either completes all rooms or dies
  */
-public class EndRoom {
+public class EndRoom implements Room {
+    private final GameWorld world;
     private Player player;
     private Door door;
+    private Door[] doors;
     private RestartArea restartArea;
     private boolean isGameOver = false;
     private boolean stopCurrentUpdateCall = false; // this determines whether to prematurely stop the update execution
 
-    public void initEntities(Properties gameProperties) {
-        // find the configuration of game objects for this room
-        for (Map.Entry<Object, Object> entry: gameProperties.entrySet()) {
-            String roomSuffix = String.format(".%s", ShadowDungeon.END_ROOM_NAME);
-            if (entry.getKey().toString().contains(roomSuffix)) {
-                String objectType = entry.getKey().toString().substring(0, entry.getKey().toString().length() - roomSuffix.length());
-                String propertyValue = entry.getValue().toString();
-
-                switch (objectType) {
-                    case "door":
-                        String[] coordinates = propertyValue.split(",");
-                        door = new Door(IOUtils.parseCoords(propertyValue), coordinates[2]);
-                        break;
-                    case "restartarea":
-                        restartArea = new RestartArea(IOUtils.parseCoords(propertyValue));
-                        break;
-                    default:
-                }
-            }
-        }
+    public EndRoom(GameWorld world) {
+        this.world = world;
     }
 
-    public void update(Input input) {
-        UserInterface.drawEndMessage(!isGameOver);
+    @Override
+    public String getName() {
+        return ShadowDungeon.END_ROOM_NAME;
+    }
+
+    @Override
+    public void initEntities(RoomSpec room) {
+        EntitySpec doorSpec = room.getFirst("door");
+        door = new Door(world, doorSpec.position, doorSpec.argument);
+        doors = new Door[] {door};
+        restartArea = new RestartArea(world, room.getFirst("restartarea").position);
+    }
 
+    @Override
+    public void update(InputSource input) {
         // door should be locked if player got to this room by dying
         if (isGameOver) {
             findDoor().lock();
         }
 
-        // update and draw all game objects in this room
+        // update all game objects in this room
         door.update(player);
-        door.draw();
         if (stopUpdatingEarlyIfNeeded()) {
             return;
         }
 
         restartArea.update(input, player);
-        restartArea.draw();
 
         if (player != null) {
             player.update(input);
+        }
+    }
+
+    @Override
+    public void draw() {
+        world.getUserInterface().drawEndMessage(!isGameOver);
+        door.draw();
+        restartArea.draw();
+        if (player != null) {
             player.draw();
         }
     }
@@ -69,10 +68,23 @@ public class EndRoom {
         return false;
     }
 
+    /**
+     * Restore the room to how it was when the level was loaded
+     */
+    @Override
+    public void reset() {
+        player = null;
+        stopCurrentUpdateCall = false;
+        isGameOver = false;
+        door.reset();
+    }
+
+    @Override
     public void setPlayer(Player player) {
         this.player = player;
     }
 
+    @Override
     public void stopCurrentUpdateCall() {
         stopCurrentUpdateCall = true;
     }
@@ -81,10 +93,16 @@ public class EndRoom {
         return door;
     }
 
-    public Door findDoorByDestination() {
+    @Override
+    public Door findDoorByDestination(int roomId) {
         return door;
     }
 
+    @Override
+    public Door[] getDoors() {
+        return doors;
+    }
+
     public void isGameOver() {
         isGameOver = true;
     }
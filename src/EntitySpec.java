@@ -0,0 +1,37 @@
+import bagel.util.Point;
+
+/**
+ * One entity read from the level file: its position and an optional extra field such as a door's destination.
+ * A numeric extra field, such as a treasure box's coins, is also kept as a number so rooms never parse it.
+ */
+public class EntitySpec {
+    public final Point position;
+    public final String argument;
+    /** The argument as a number, or NaN if there is none or it isn't one */
+    public final double value;
+
+    public EntitySpec(Point position, String argument, double value) {
+        this.position = position;
+        this.argument = argument;
+        this.value = value;
+    }
+
+    /**
+     * Parse an "x,y" or "x,y,argument" entry
+     */
+    public static EntitySpec parse(String entry) {
+        String[] fields = entry.split(",");
+        Point position = new Point(Double.parseDouble(fields[0]), Double.parseDouble(fields[1]));
+        if (fields.length <= 2) {
+            return new EntitySpec(position, null, Double.NaN);
+        }
+
+        double value;
+        try {
+            value = Double.parseDouble(fields[2]);
+        } catch (NumberFormatException ex) {
+            value = Double.NaN;
+        }
+        return new EntitySpec(position, fields[2], value);
+    }
+}
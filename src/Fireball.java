@@ -0,0 +1,88 @@
+import bagel.util.Point;
+import bagel.util.Rectangle;
+
+/**
+ * Projectile fired by a BulletKin towards where the player stood, hurting the player on contact
+ */
+public class Fireball {
+    private final GameWorld world;
+    private final Sprite image;
+    private double x;
+    private double y;
+    private double prevX;
+    private double prevY;
+    private double dx;
+    private double dy;
+    private boolean active = false;
+
+    public Fireball(GameWorld world) {
+        this.world = world;
+        this.image = SpriteRegistry.get("res/fireball.png");
+    }
+
+    /**
+     * Launch the fireball from one point towards another, reusing this instance if it was fired before
+     */
+    public void fire(Point from, Point target) {
+        double distX = target.x - from.x;
+        double distY = target.y - from.y;
+        double distance = Math.sqrt(distX * distX + distY * distY);
+        double speed = world.getConfig().fireballSpeed;
+        x = from.x;
+        y = from.y;
+        prevX = x;
+        prevY = y;
+        dx = distance == 0 ? 0 : distX / distance * speed;
+        dy = distance == 0 ? speed : distY / distance * speed;
+        active = true;
+    }
+
+    public void update(Player player) {
+        if (!active) return;
+        prevX = x;
+        prevY = y;
+        x += dx;
+        y += dy;
+
+        if (x < 0 || y < 0 || x > world.getConfig().windowWidth || y > world.getConfig().windowHeight) {
+            active = false;
+        } else if (player != null && hasCollidedWith(
+                player.getCurrImage().getBoundingBoxAt(player.getPosition()))) {
+            player.receiveDamage(world.getConfig().fireballDamage);
+            active = false;
+        }
+    }
+
+    public void draw() {
+        if (active) {
+            image.drawMoving(prevX, prevY, x, y, RenderLayer.PROJECTILES);
+        }
+    }
+
+    public boolean hasCollidedWith(Rectangle boundingBox) {
+        return active && getBoundingBox().intersects(boundingBox);
+    }
+
+    /**
+     * @return how far the fireball moved along x in the last update
+     */
+    public double getDx() {
+        return x - prevX;
+    }
+
+    public double getDy() {
+        return y - prevY;
+    }
+
+    public Rectangle getBoundingBox() {
+        return image.getBoundingBoxAt(new Point(x, y));
+    }
+
+    public void deactivate() {
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
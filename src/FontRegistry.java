@@ -0,0 +1,35 @@
+import bagel.Font;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry that loads each font file at a given size once and shares it between all callers
+ */
+public class FontRegistry {
+    public static final String DEFAULT_FONT = "res/wheaton.otf";
+
+    private static final Map<String, Map<Integer, Font>> FONTS = new HashMap<>();
+
+    public static Font get(String fontFile, int fontSize) {
+        Map<Integer, Font> sizes = FONTS.computeIfAbsent(fontFile, file -> new HashMap<>());
+        Font font = sizes.get(fontSize);
+        if (font == null) {
+            font = new Font(fontFile, fontSize);
+            sizes.put(fontSize, font);
+        }
+        return font;
+    }
+
+    public static Font get(int fontSize) {
+        return get(DEFAULT_FONT, fontSize);
+    }
+
+    public static int size() {
+        int count = 0;
+        for (Map<Integer, Font> sizes : FONTS.values()) {
+            count += sizes.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer of render frames. The simulation thread fills the back frame and publishes it, and the
+ * window thread always draws the most recently published frame, so neither thread ever waits for the other.
+ */
+public class FrameExchange {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final RenderFrame[] frames = {new RenderFrame(), new RenderFrame(), new RenderFrame()};
+    // Index of the frame between the two threads, flagged FRESH when it was published after the last read
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    /**
+     * @return the frame the simulation thread is recording into
+     */
+    public RenderFrame getBackFrame() {
+        return frames[back];
+    }
+
+    /**
+     * Hand the back frame to the window thread and take the frame it no longer needs to record the next tick into
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * @return the latest published frame, which stays valid until the next call
+     */
+    public RenderFrame getFrontFrame() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return frames[front];
+    }
+}
@@ -0,0 +1,187 @@
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scoped per-stage frame timers kept in ring buffers, with an overlay showing min, average and p99 for each stage.
+ * While disabled every call returns after a single branch, so the timers can stay in the game loop.
+ * The timers are shared by the whole process, so only the thread that switched the profiler on records into them.
+ * Worlds simulated on other threads, e.g. by an AgentEnvironment, leave them alone.
+ */
+public class FrameProfiler {
+    /**
+     * Timed stages of a frame. FRAME covers one tick and recording what it draws; UI times the stats display.
+     */
+    public enum Stage {
+        FRAME, DOORS, OBSTACLES, ENEMIES, COLLISIONS, PLAYER, UI
+    }
+
+    private static final int SAMPLES = 240;
+    private static final int REFRESH_FRAMES = 30;
+    private static final int FONT_SIZE = 16;
+    private static final double OVERLAY_X = 10;
+    private static final double OVERLAY_Y = 20;
+    private static final double LINE_HEIGHT = 18;
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final long[][] samples = new long[STAGES.length][SAMPLES];
+    private static final int[] sampleCounts = new int[STAGES.length];
+    private static final int[] nextSample = new int[STAGES.length];
+    private static final long[] startTimes = new long[STAGES.length];
+    private static final long[] frameTotals = new long[STAGES.length];
+    private static final boolean[] ranThisFrame = new boolean[STAGES.length];
+    private static final long[] sorted = new long[SAMPLES];
+    private static final String[] overlayLines = new String[STAGES.length + 1];
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    // The thread recording into the timers, or null while disabled
+    private static volatile Thread owner = null;
+    private static volatile boolean toggleRequested = false;
+    private static int framesUntilRefresh = 0;
+    private static long frameStartBytes;
+    private static long bytesSinceRefresh;
+    private static long gcCountAtRefresh;
+    private static long gcTimeAtRefresh;
+
+    /**
+     * Switch the profiler on or off at the start of the next frame. Safe to call from any thread.
+     */
+    public static void toggle() {
+        toggleRequested = true;
+    }
+
+    private static void applyToggle() {
+        if (owner != null) {
+            owner = null;
+        } else {
+            Arrays.fill(sampleCounts, 0);
+            Arrays.fill(nextSample, 0);
+            Arrays.fill(overlayLines, null);
+            framesUntilRefresh = REFRESH_FRAMES;
+            bytesSinceRefresh = 0;
+            gcCountAtRefresh = totalGcCount();
+            gcTimeAtRefresh = totalGcTime();
+            owner = Thread.currentThread();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return owner != null;
+    }
+
+    public static void beginFrame() {
+        if (toggleRequested) {
+            toggleRequested = false;
+            applyToggle();
+        }
+        if (owner != Thread.currentThread()) {
+            return;
+        }
+        Arrays.fill(frameTotals, 0);
+        Arrays.fill(ranThisFrame, false);
+        frameStartBytes = THREADS.getCurrentThreadAllocatedBytes();
+        begin(Stage.FRAME);
+    }
+
+    public static void begin(Stage stage) {
+        if (owner != Thread.currentThread()) {
+            return;
+        }
+        startTimes[stage.ordinal()] = System.nanoTime();
+    }
+
+    public static void end(Stage stage) {
+        if (owner != Thread.currentThread()) {
+            return;
+        }
+        int i = stage.ordinal();
+        frameTotals[i] += System.nanoTime() - startTimes[i];
+        ranThisFrame[i] = true;
+    }
+
+    /**
+     * Push this frame's stage times into the ring buffers and draw the overlay
+     */
+    public static void endFrame() {
+        if (owner != Thread.currentThread()) {
+            return;
+        }
+        end(Stage.FRAME);
+        bytesSinceRefresh += THREADS.getCurrentThreadAllocatedBytes() - frameStartBytes;
+
+        for (int i = 0; i < STAGES.length; i++) {
+            if (ranThisFrame[i]) {
+                samples[i][nextSample[i]] = frameTotals[i];
+                nextSample[i] = (nextSample[i] + 1) % SAMPLES;
+                sampleCounts[i] = Math.min(sampleCounts[i] + 1, SAMPLES);
+            }
+        }
+
+        if (--framesUntilRefresh <= 0) {
+            refreshOverlay();
+            framesUntilRefresh = REFRESH_FRAMES;
+        }
+        drawOverlay();
+    }
+
+    private static void refreshOverlay() {
+        for (int i = 0; i < STAGES.length; i++) {
+            int count = sampleCounts[i];
+            if (count == 0) {
+                overlayLines[i] = null;
+                continue;
+            }
+
+            System.arraycopy(samples[i], 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            long total = 0;
+            for (int j = 0; j < count; j++) {
+                total += sorted[j];
+            }
+            long p99 = sorted[Math.min(count - 1, (int) Math.ceil(count * 0.99) - 1)];
+
+            overlayLines[i] = String.format("%-10s min %6.3f  avg %6.3f  p99 %6.3f ms", STAGES[i],
+                    sorted[0] / 1e6, total / (double) count / 1e6, p99 / 1e6);
+        }
+
+        long gcCount = totalGcCount();
+        long gcTime = totalGcTime();
+        overlayLines[STAGES.length] = String.format("alloc %.1f KB/frame  gc %d pauses, %d ms",
+                bytesSinceRefresh / 1024.0 / REFRESH_FRAMES, gcCount - gcCountAtRefresh, gcTime - gcTimeAtRefresh);
+        bytesSinceRefresh = 0;
+        gcCountAtRefresh = gcCount;
+        gcTimeAtRefresh = gcTime;
+    }
+
+    private static void drawOverlay() {
+        Renderer renderer = ShadowDungeon.getRenderer();
+        double y = OVERLAY_Y;
+        for (String line : overlayLines) {
+            if (line != null) {
+                renderer.drawText(line, FONT_SIZE, OVERLAY_X, y, RenderLayer.OVERLAY);
+                y += LINE_HEIGHT;
+            }
+        }
+    }
+
+    private static long totalGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : COLLECTORS) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long totalGcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : COLLECTORS) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+}
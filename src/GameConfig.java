@@ -0,0 +1,188 @@
+import bagel.util.Point;
+
+import java.util.Properties;
+
+/**
+ * Immutable, pre-parsed snapshot of the game and message properties so that entities never parse strings mid-game
+ */
+public class GameConfig {
+    // Window
+    public final int windowWidth;
+    public final int windowHeight;
+
+    // Player
+    public final Point playerStart;
+    public final double movingSpeed;
+    public final double initialHealth;
+    public final int bulletFrequency;
+    public final double bulletSpeed;
+    public final int weaponStandardDamage;
+    public final int weaponAdvanceDamage;
+    public final int weaponEliteDamage;
+    public final double robotExtraCoin;
+    public final int weaponPurchase;
+    public final int healthPurchase;
+
+    // Enemies and hazards
+    public final double keyBulletKinHealth;
+    public final double keyBulletKinSpeed;
+    public final double riverDamagePerFrame;
+    public final double bulletKinHealth;
+    public final int bulletKinShootFrequency;
+    public final double bulletKinCoin;
+    public final double ashenBulletKinHealth;
+    public final int ashenBulletKinShootFrequency;
+    public final double ashenBulletKinCoin;
+    public final double fireballSpeed;
+    public final double fireballDamage;
+    public final double basketCoin;
+
+    // Prep room and store
+    public final Point robotPosition;
+    public final Point marinePosition;
+    public final Point storePosition;
+
+    // User interface layout
+    public final int playerStatsFontSize;
+    public final int titleFontSize;
+    public final int promptFontSize;
+    public final double titleY;
+    public final double moveMessageY;
+    public final double selectMessageY;
+    public final Point healthStat;
+    public final Point coinStat;
+    public final Point keyStat;
+    public final Point weaponStat;
+    public final Point robotMessage;
+    public final Point marineMessage;
+
+    // Messages
+    public final String healthDisplay;
+    public final String coinDisplay;
+    public final String keyDisplay;
+    public final String weaponDisplay;
+    public final String title;
+    public final String moveMessage;
+    public final String selectMessage;
+    public final String robotDescription;
+    public final String marineDescription;
+    public final String gameWonMessage;
+    public final String gameLostMessage;
+    public final String loadingMessage;
+
+    /** Used when message.properties has no loadingMessage; formatted with the percentage loaded */
+    private static final String DEFAULT_LOADING_MESSAGE = "Loading %.0f%%";
+
+    /**
+     * Parse every value the game needs up front
+     * @throws IllegalArgumentException if a key is missing or its value cannot be parsed
+     */
+    public GameConfig(Properties gameProps, Properties messageProps) {
+        windowWidth = requireInt(gameProps, "window.width");
+        windowHeight = requireInt(gameProps, "window.height");
+
+        playerStart = requirePoint(gameProps, "player.start");
+        movingSpeed = requireDouble(gameProps, "movingSpeed");
+        initialHealth = requireDouble(gameProps, "initialHealth");
+        bulletFrequency = requireInt(gameProps, "bulletfreq");
+        bulletSpeed = requireDouble(gameProps, "bulletSpeed");
+        weaponStandardDamage = requireInt(gameProps, "weaponStandardDamage");
+        weaponAdvanceDamage = requireInt(gameProps, "weaponAdvanceDamage");
+        weaponEliteDamage = requireInt(gameProps, "weaponEliteDamage");
+        robotExtraCoin = requireDouble(gameProps, "robotExtraCoin");
+        weaponPurchase = requireInt(gameProps, "weaponPurchase");
+        healthPurchase = requireInt(gameProps, "healthPurchase");
+
+        keyBulletKinHealth = requireDouble(gameProps, "keyBulletKinHealth");
+        keyBulletKinSpeed = requireDouble(gameProps, "keyBulletKinSpeed");
+        riverDamagePerFrame = requireDouble(gameProps, "riverDamagePerFrame");
+        // Older app.properties files have no settings for these enemies and obstacles, so they have defaults
+        bulletKinHealth = optionalDouble(gameProps, "bulletKinHealth", 15);
+        bulletKinShootFrequency = (int) optionalDouble(gameProps, "bulletKinShootFrequency", 120);
+        bulletKinCoin = optionalDouble(gameProps, "bulletKinCoin", 10);
+        ashenBulletKinHealth = optionalDouble(gameProps, "ashenBulletKinHealth", 30);
+        ashenBulletKinShootFrequency = (int) optionalDouble(gameProps, "ashenBulletKinShootFrequency", 80);
+        ashenBulletKinCoin = optionalDouble(gameProps, "ashenBulletKinCoin", 20);
+        fireballSpeed = optionalDouble(gameProps, "fireballSpeed", 4);
+        fireballDamage = optionalDouble(gameProps, "fireballDamage", 5);
+        basketCoin = optionalDouble(gameProps, "basketCoin", 5);
+
+        robotPosition = requirePoint(gameProps, "Robot");
+        marinePosition = requirePoint(gameProps, "Marine");
+        storePosition = requirePoint(gameProps, "store");
+
+        playerStatsFontSize = requireInt(gameProps, "playerStats.fontSize");
+        titleFontSize = requireInt(gameProps, "title.fontSize");
+        promptFontSize = requireInt(gameProps, "prompt.fontSize");
+        titleY = requireDouble(gameProps, "title.y");
+        moveMessageY = requireDouble(gameProps, "moveMessage.y");
+        selectMessageY = requireDouble(gameProps, "selectMessage.y");
+        healthStat = requirePoint(gameProps, "healthStat");
+        coinStat = requirePoint(gameProps, "coinStat");
+        keyStat = requirePoint(gameProps, "keyStat");
+        weaponStat = requirePoint(gameProps, "weaponStat");
+        robotMessage = requirePoint(gameProps, "robotMessage");
+        marineMessage = requirePoint(gameProps, "marineMessage");
+
+        healthDisplay = requireString(messageProps, "healthDisplay");
+        coinDisplay = requireString(messageProps, "coinDisplay");
+        keyDisplay = requireString(messageProps, "keyDisplay");
+        weaponDisplay = requireString(messageProps, "weaponDisplay");
+        title = requireString(messageProps, "title");
+        moveMessage = requireString(messageProps, "moveMessage");
+        selectMessage = requireString(messageProps, "selectMessage");
+        robotDescription = requireString(messageProps, "robotDescription");
+        marineDescription = requireString(messageProps, "marineDescription");
+        gameWonMessage = requireString(messageProps, "gameEnd.won");
+        gameLostMessage = requireString(messageProps, "gameEnd.lost");
+        loadingMessage = messageProps.getProperty("loadingMessage", DEFAULT_LOADING_MESSAGE);
+    }
+
+    public int getWeaponDamage(int weaponLevel) {
+        switch (weaponLevel) {
+            case 0: return weaponStandardDamage;
+            case 1: return weaponAdvanceDamage;
+            case 2: return weaponEliteDamage;
+            default: return 30;
+        }
+    }
+
+    private static String requireString(Properties props, String key) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Missing property '%s'", key));
+        }
+        return value;
+    }
+
+    private static int requireInt(Properties props, String key) {
+        String value = requireString(props, key);
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(String.format("Property '%s' is not an integer: %s", key, value), ex);
+        }
+    }
+
+    private static double requireDouble(Properties props, String key) {
+        String value = requireString(props, key);
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(String.format("Property '%s' is not a number: %s", key, value), ex);
+        }
+    }
+
+    private static double optionalDouble(Properties props, String key, double defaultValue) {
+        return props.getProperty(key) == null ? defaultValue : requireDouble(props, key);
+    }
+
+    private static Point requirePoint(Properties props, String key) {
+        String value = requireString(props, key);
+        try {
+            return IOUtils.parseCoords(value);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException(String.format("Property '%s' is not a coordinate: %s", key, value), ex);
+        }
+    }
+}
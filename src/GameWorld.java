@@ -0,0 +1,307 @@
+import bagel.Keys;
+import bagel.util.Point;
+
+import java.util.Properties;
+
+/**
+ * One running game: its configuration, rooms, player and store. Worlds share no mutable state, so any number of them
+ * can be simulated at once on different threads.
+ */
+public class GameWorld {
+    private static final ThreadLocal<GameWorld> CURRENT = new ThreadLocal<>();
+
+    private final Properties gameProps;
+    private final Properties messageProps;
+    private final GameConfig config;
+    private final Renderer renderer;
+    private final UserInterface userInterface;
+    private final Store store;
+    private final Sprite background;
+
+    private RoomRegistry rooms;
+    private int currRoomId;
+    private int prevRoomId;
+    private Player player;
+    private SaveGame autosave;
+    private int gamesStarted = 0;
+    private long seed = 0;
+
+    /**
+     * Build every room from the level layout and start the game in the prep room
+     */
+    public GameWorld(Properties gameProps, Properties messageProps, GameConfig config, LevelSpec level,
+                     Renderer renderer) {
+        this.gameProps = gameProps;
+        this.messageProps = messageProps;
+        this.config = config;
+        this.renderer = renderer;
+        this.userInterface = new UserInterface(this);
+        this.store = new Store(this);
+        this.background = SpriteRegistry.get("res/background.png");
+
+        loadLevel(level);
+    }
+
+    /**
+     * @return the world being simulated on the calling thread
+     */
+    public static GameWorld current() {
+        GameWorld world = CURRENT.get();
+        if (world == null) {
+            throw new IllegalStateException("No game world is running on this thread");
+        }
+        return world;
+    }
+
+    /**
+     * Make this the world returned by current() on the calling thread until another world is made current
+     */
+    public void makeCurrent() {
+        CURRENT.set(this);
+    }
+
+    private GameWorld enter() {
+        GameWorld previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    private static void exit(GameWorld previous) {
+        CURRENT.set(previous);
+    }
+
+    /**
+     * Replace the rooms and the player with ones built from the given level
+     */
+    public void loadLevel(LevelSpec level) {
+        GameWorld previous = enter();
+        try {
+            rooms = new RoomRegistry(this, level);
+            player = new Player(this, config.playerStart);
+            startGame();
+        } finally {
+            exit(previous);
+        }
+    }
+
+    /**
+     * Restart the game by restoring the state of the already loaded rooms instead of parsing the level again
+     */
+    public void resetGameState() {
+        resetGameState(seed);
+    }
+
+    /**
+     * Restart the game with a new seed for everything random in it, so two games with the same seed and the same
+     * input play out the same
+     */
+    public void resetGameState(long seed) {
+        this.seed = seed;
+        GameWorld previous = enter();
+        try {
+            rooms.resetAll();
+            player.reset(config.playerStart);
+            startGame();
+        } finally {
+            exit(previous);
+        }
+    }
+
+    private void startGame() {
+        gamesStarted++;
+        currRoomId = RoomRegistry.PREP_ROOM_ID;
+        prevRoomId = RoomRegistry.PREP_ROOM_ID;
+        rooms.getPrepRoom().setPlayer(player);
+
+        // Hide store on reset
+        store.hide();
+    }
+
+    /**
+     * @return the seed the current game was started with
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Simulate a single tick without drawing anything
+     * @param input The mouse/keyboard state for this tick.
+     */
+    public void tick(InputSource input) {
+        GameWorld previous = enter();
+        try {
+            if (autosave != null) {
+                autosave.update();
+            }
+
+            // Toggle store with Space key
+            if (input.wasPressed(Keys.SPACE)) {
+                store.toggleVisibility();
+            }
+
+            // If store is visible, update store and pause game
+            if (store.isVisible()) {
+                // Still update the current room in background
+                rooms.get(currRoomId).update(input);
+                store.update(input, player);
+                return;
+            }
+
+            // Normal game update
+            rooms.get(currRoomId).update(input);
+        } finally {
+            exit(previous);
+        }
+    }
+
+    /**
+     * Draw the world as it is without simulating
+     */
+    public void draw() {
+        GameWorld previous = enter();
+        try {
+            background.draw(config.windowWidth / 2.0, config.windowHeight / 2.0, RenderLayer.BACKGROUND);
+            rooms.get(currRoomId).draw();
+            if (store.isVisible()) {
+                store.draw();
+            }
+        } finally {
+            exit(previous);
+        }
+    }
+
+    /**
+     * Move the player into the given room, next to the door that leads back to the room they came from
+     */
+    public void changeRoom(int roomId) {
+        rooms.get(currRoomId).stopCurrentUpdateCall();
+        enterRoom(roomId);
+
+        if (autosave != null) {
+            autosave.save(this);
+        }
+    }
+
+    private void enterRoom(int roomId) {
+        Room nextRoom = rooms.get(roomId);
+        Door nextDoor = nextRoom.findDoorByDestination(currRoomId);
+
+        prevRoomId = currRoomId;
+        currRoomId = roomId;
+
+        nextRoom.prepareEntryDoor(nextDoor);
+        nextDoor.unlock(true);
+        player.teleport(nextDoor.getPosition().x, nextDoor.getPosition().y);
+        nextRoom.setPlayer(player);
+
+        rooms.evictFarRooms(currRoomId);
+    }
+
+    /**
+     * Put the player into a saved room the way they entered it, after the rooms and the player have been restored
+     */
+    void enterSavedRoom(int roomId, int fromRoomId) {
+        GameWorld previous = enter();
+        try {
+            rooms.getPrepRoom().setPlayer(null);
+            if (player.getCharacterType() != CharacterType.NONE) {
+                rooms.getPrepRoom().findDoor().unlock(false);
+            }
+
+            if (roomId == RoomRegistry.PREP_ROOM_ID) {
+                rooms.getPrepRoom().setPlayer(player);
+            } else {
+                Point position = player.getPosition();
+                currRoomId = fromRoomId;
+                enterRoom(roomId);
+                player.teleport(position.x, position.y);
+            }
+        } finally {
+            exit(previous);
+        }
+    }
+
+    /**
+     * Save the game to the given file every time the player moves to another room
+     */
+    public void setAutosave(SaveGame autosave) {
+        this.autosave = autosave;
+    }
+
+    /**
+     * Put the player straight into the given room without going through a door, e.g. when rewinding
+     */
+    void setCurrentRoom(int roomId) {
+        if (roomId != currRoomId) {
+            rooms.get(currRoomId).setPlayer(null);
+            currRoomId = roomId;
+            rooms.get(roomId).setPlayer(player);
+        }
+    }
+
+    public void prefetchRoom(int roomId) {
+        rooms.prefetch(roomId);
+    }
+
+    public void changeToGameOverRoom() {
+        if (currRoomId != RoomRegistry.END_ROOM_ID) {
+            rooms.get(currRoomId).stopCurrentUpdateCall();
+        }
+
+        EndRoom endRoom = rooms.getEndRoom();
+        endRoom.isGameOver();
+        currRoomId = RoomRegistry.END_ROOM_ID;
+
+        Point startPos = config.playerStart;
+        player.teleport(startPos.x, startPos.y);
+        endRoom.setPlayer(player);
+    }
+
+    public Properties getGameProps() {
+        return gameProps;
+    }
+
+    public Properties getMessageProps() {
+        return messageProps;
+    }
+
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    public UserInterface getUserInterface() {
+        return userInterface;
+    }
+
+    /**
+     * @return how many times a game has been started in this world, counting restarts and loaded saves, so state
+     * kept about the game outside the world can tell when it no longer applies
+     */
+    public int getGamesStarted() {
+        return gamesStarted;
+    }
+
+    public RoomRegistry getRooms() {
+        return rooms;
+    }
+
+    public int getCurrentRoomId() {
+        return currRoomId;
+    }
+
+    /**
+     * @return the room the player was in before the current one
+     */
+    public int getPreviousRoomId() {
+        return prevRoomId;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+}
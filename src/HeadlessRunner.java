@@ -0,0 +1,96 @@
+import bagel.Keys;
+import bagel.MouseButtons;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the game loop without a window as fast as possible, driven by scripted random input or a recorded log.
+ * Several independent worlds can be simulated at once, one per task on a pool sized to the machine's cores.
+ * Usage: HeadlessRunner [frames] [seed] [worlds], or HeadlessRunner --replay file
+ */
+public class HeadlessRunner {
+    private static final int DEFAULT_FRAMES = 100000;
+    private static final int FRAMES_PER_DECISION = 30;
+    private static final Keys[] MOVE_KEYS = {Keys.W, Keys.A, Keys.S, Keys.D};
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        Properties gameProps = IOUtils.readPropertiesFile(ShadowDungeon.GAME_PROPS_FILE);
+        Properties messageProps = IOUtils.readPropertiesFile(ShadowDungeon.MESSAGE_PROPS_FILE);
+        GameConfig config = new GameConfig(gameProps, messageProps);
+        LevelSpec level = ShadowDungeon.readLevel(gameProps);
+
+        if (args.length == 2 && args[0].equals("--replay")) {
+            GameWorld world = new GameWorld(gameProps, messageProps, config, level, new NullRenderer());
+            replay(world, new InputReplayer(args[1], IOUtils.checksum(ShadowDungeon.GAME_PROPS_FILE)));
+            return;
+        }
+
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        int worldCount = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(worldCount, Runtime.getRuntime().availableProcessors()));
+        List<Future<?>> runs = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < worldCount; i++) {
+            long worldSeed = seed + i;
+            runs.add(pool.submit(() -> {
+                GameWorld world = new GameWorld(gameProps, messageProps, config, level, new NullRenderer());
+                simulate(world, frames, worldSeed);
+            }));
+        }
+        for (Future<?> run : runs) {
+            run.get();
+        }
+        pool.shutdown();
+        printTiming((long) frames * worldCount, System.nanoTime() - start);
+    }
+
+    private static void simulate(GameWorld world, int frames, long seed) {
+        GameConfig config = world.getConfig();
+        ScriptedInputSource input = new ScriptedInputSource();
+        Random random = new Random(seed);
+
+        // Pick a character so the door out of the prep room unlocks
+        input.press(Keys.R);
+
+        for (int frame = 0; frame < frames; frame++) {
+            if (frame % FRAMES_PER_DECISION == 0) {
+                for (Keys key : MOVE_KEYS) {
+                    input.setDown(key, random.nextBoolean());
+                }
+                input.setMouse(random.nextDouble() * config.windowWidth, random.nextDouble() * config.windowHeight);
+                input.setDown(MouseButtons.LEFT, random.nextBoolean());
+            }
+
+            world.tick(input);
+            world.draw();
+            input.endFrame();
+        }
+    }
+
+    private static void replay(GameWorld world, InputReplayer replayer) {
+        int frames = 0;
+        long start = System.nanoTime();
+        while (replayer.hasNextFrame()) {
+            world.tick(replayer.nextFrame());
+            world.draw();
+            frames++;
+        }
+        printTiming(frames, System.nanoTime() - start);
+    }
+
+    private static void printTiming(long frames, long elapsed) {
+        System.out.printf("Simulated %d frames in %.1f ms (%.0f frames/s)%n",
+                frames, elapsed / 1e6, frames / (elapsed / 1e9));
+    }
+}
@@ -1,8 +1,11 @@
 import bagel.util.Point;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.zip.CRC32;
 
 /**
  * A utility class that provides methods to read and write files.
@@ -25,6 +28,23 @@ public class IOUtils {
         return appProps;
     }
 
+    /***
+     * Compute a checksum of a file's contents, used to check recordings are replayed against the same config
+     * @param file: the path to the file
+     * @return: CRC32 of the file
+     */
+    public static long checksum(String file) {
+        CRC32 crc = new CRC32();
+        try {
+            crc.update(Files.readAllBytes(Paths.get(file)));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(-1);
+        }
+
+        return crc.getValue();
+    }
+
     public static Point parseCoords(String coords) {
         String[] coordinates = coords.split(",");
         return new Point(Double.parseDouble(coordinates[0]), Double.parseDouble(coordinates[1]));
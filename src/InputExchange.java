@@ -0,0 +1,60 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer that hands the window's input to the simulation thread. Each published frame carries a
+ * running count of presses per key, so a press is seen by exactly one tick however many frames the window publishes
+ * between two ticks, or however many ticks run between two frames.
+ */
+public class InputExchange {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final InputFrame[] frames = {new InputFrame(), new InputFrame(), new InputFrame()};
+    private final int[][] pressCounts = new int[3][Integer.SIZE];
+    // Index of the frame between the two threads, flagged FRESH when it was published after the last take
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // Owned by the window thread
+    private final int[] publishedCounts = new int[Integer.SIZE];
+    private int back = 0;
+
+    // Owned by the simulation thread
+    private final int[] takenCounts = new int[Integer.SIZE];
+    private int front = 2;
+
+    /**
+     * Capture the window's input and hand it to the simulation thread
+     */
+    public void publish(InputSource input) {
+        InputFrame frame = frames[back];
+        frame.capture(input);
+        int pressed = frame.getKeysPressed();
+        for (int bit = 0; bit < Integer.SIZE; bit++) {
+            if ((pressed & (1 << bit)) != 0) {
+                publishedCounts[bit]++;
+            }
+        }
+        System.arraycopy(publishedCounts, 0, pressCounts[back], 0, Integer.SIZE);
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Copy the latest published input into a tick's frame, marking the keys pressed since the last take
+     */
+    public void take(InputFrame into) {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        into.copyFrom(frames[front]);
+
+        int[] counts = pressCounts[front];
+        int pressed = 0;
+        for (int bit = 0; bit < Integer.SIZE; bit++) {
+            if (counts[bit] != takenCounts[bit]) {
+                pressed |= 1 << bit;
+                takenCounts[bit] = counts[bit];
+            }
+        }
+        into.setKeysPressed(pressed);
+    }
+}
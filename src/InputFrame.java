@@ -0,0 +1,113 @@
+import bagel.Keys;
+import bagel.MouseButtons;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Snapshot of every input the game reads during one frame, in a fixed-size binary layout for recording and replay
+ */
+public class InputFrame implements InputSource {
+    /** Every key the game reacts to, in the bit order used by the recording format */
+    private static final Keys[] RECORDED_KEYS = {
+            Keys.W, Keys.A, Keys.S, Keys.D, Keys.SPACE, Keys.L, Keys.E, Keys.P, Keys.R, Keys.M, Keys.K, Keys.ENTER
+    };
+    private static final int[] KEY_BITS = new int[Keys.values().length];
+
+    // keys down, keys pressed, mouse buttons, mouse x, mouse y
+    public static final int BYTES = Integer.BYTES * 2 + Byte.BYTES + Double.BYTES * 2;
+
+    static {
+        for (int i = 0; i < RECORDED_KEYS.length; i++) {
+            KEY_BITS[RECORDED_KEYS[i].ordinal()] = 1 << i;
+        }
+    }
+
+    private int keysDown;
+    private int keysPressed;
+    private int buttonsDown;
+    private double mouseX;
+    private double mouseY;
+
+    public void capture(InputSource input) {
+        keysDown = 0;
+        keysPressed = 0;
+        for (Keys key : RECORDED_KEYS) {
+            if (input.isDown(key)) {
+                keysDown |= KEY_BITS[key.ordinal()];
+            }
+            if (input.wasPressed(key)) {
+                keysPressed |= KEY_BITS[key.ordinal()];
+            }
+        }
+
+        buttonsDown = 0;
+        for (MouseButtons button : MouseButtons.values()) {
+            if (input.isDown(button)) {
+                buttonsDown |= 1 << button.ordinal();
+            }
+        }
+
+        mouseX = input.getMouseX();
+        mouseY = input.getMouseY();
+    }
+
+    /**
+     * @return the keys pressed this frame, one bit per recorded key
+     */
+    int getKeysPressed() {
+        return keysPressed;
+    }
+
+    void setKeysPressed(int keysPressed) {
+        this.keysPressed = keysPressed;
+    }
+
+    public void copyFrom(InputFrame other) {
+        keysDown = other.keysDown;
+        keysPressed = other.keysPressed;
+        buttonsDown = other.buttonsDown;
+        mouseX = other.mouseX;
+        mouseY = other.mouseY;
+    }
+
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(keysDown);
+        buffer.putInt(keysPressed);
+        buffer.put((byte) buttonsDown);
+        buffer.putDouble(mouseX);
+        buffer.putDouble(mouseY);
+    }
+
+    public void read(ByteBuffer buffer) {
+        keysDown = buffer.getInt();
+        keysPressed = buffer.getInt();
+        buttonsDown = buffer.get();
+        mouseX = buffer.getDouble();
+        mouseY = buffer.getDouble();
+    }
+
+    @Override
+    public boolean isDown(Keys key) {
+        return (keysDown & KEY_BITS[key.ordinal()]) != 0;
+    }
+
+    @Override
+    public boolean wasPressed(Keys key) {
+        return (keysPressed & KEY_BITS[key.ordinal()]) != 0;
+    }
+
+    @Override
+    public boolean isDown(MouseButtons button) {
+        return (buttonsDown & (1 << button.ordinal())) != 0;
+    }
+
+    @Override
+    public double getMouseX() {
+        return mouseX;
+    }
+
+    @Override
+    public double getMouseY() {
+        return mouseY;
+    }
+}
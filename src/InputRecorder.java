@@ -0,0 +1,73 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records the input of every frame to a binary log that InputReplayer can play back frame-exactly.
+ * Frames are packed into a preallocated buffer and written out in large chunks, so recording never allocates.
+ */
+public class InputRecorder {
+    public static final int MAGIC = 0x53444952; // "SDIR"
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES;
+
+    private static final int BUFFER_FRAMES = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_FRAMES * InputFrame.BYTES);
+    private final InputFrame frame = new InputFrame();
+    private boolean failed = false;
+
+    /**
+     * @param propsChecksum checksum of the app.properties the recording is made against
+     */
+    public InputRecorder(String logFile, long propsChecksum) throws IOException {
+        channel = FileChannel.open(Paths.get(logFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putLong(propsChecksum);
+    }
+
+    /**
+     * Capture this frame's input and return it, so the game reads exactly what was recorded
+     */
+    public InputSource record(InputSource input) {
+        frame.capture(input);
+        if (!failed) {
+            frame.write(buffer);
+            if (buffer.remaining() < InputFrame.BYTES) {
+                flush();
+            }
+        }
+        return frame;
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            // Losing the recording should never take the game down with it
+            ex.printStackTrace();
+            failed = true;
+        }
+        buffer.clear();
+    }
+
+    public void close() {
+        if (!failed) {
+            flush();
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays back an input log written by InputRecorder one frame at a time
+ */
+public class InputReplayer {
+    private final ByteBuffer buffer;
+    private final InputFrame frame = new InputFrame();
+
+    /**
+     * @param propsChecksum checksum of the app.properties being played against, which must match the recording
+     */
+    public InputReplayer(String logFile, long propsChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(logFile), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < InputRecorder.HEADER_BYTES || buffer.getInt() != InputRecorder.MAGIC) {
+            throw new IOException(String.format("%s is not an input recording", logFile));
+        }
+        short version = buffer.getShort();
+        if (version != InputRecorder.VERSION) {
+            throw new IOException(String.format("Unsupported input recording version %d", version));
+        }
+        if (buffer.getLong() != propsChecksum) {
+            throw new IOException(String.format("%s was recorded against a different app.properties", logFile));
+        }
+    }
+
+    public boolean hasNextFrame() {
+        return buffer.remaining() >= InputFrame.BYTES;
+    }
+
+    /**
+     * Advance to the next recorded frame and return its input
+     */
+    public InputSource nextFrame() {
+        frame.read(buffer);
+        return frame;
+    }
+}
@@ -0,0 +1,17 @@
+import bagel.Keys;
+import bagel.MouseButtons;
+
+/**
+ * The keyboard and mouse state the game reads each frame
+ */
+public interface InputSource {
+    boolean isDown(Keys key);
+
+    boolean wasPressed(Keys key);
+
+    boolean isDown(MouseButtons button);
+
+    double getMouseX();
+
+    double getMouseY();
+}
@@ -0,0 +1,37 @@
+import bagel.util.Point;
+
+/**
+ * Key dropped by a defeated KeyBulletKin, picked up by walking over it
+ */
+public class Key {
+    private final Point position;
+    private final Sprite image;
+    private boolean active = true;
+
+    public Key(Point position) {
+        this.position = position;
+        this.image = SpriteRegistry.get("res/key.png");
+    }
+
+    public void update(Player player) {
+        if (active && hasCollidedWith(player)) {
+            player.addKey();
+            active = false;
+        }
+    }
+
+    public void draw() {
+        if (active) {
+            image.draw(position.x, position.y);
+        }
+    }
+
+    public boolean hasCollidedWith(Player player) {
+        return image.getBoundingBoxAt(position).intersects(
+                player.getCurrImage().getBoundingBoxAt(player.getPosition()));
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
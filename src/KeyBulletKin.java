@@ -1,41 +1,47 @@
-import bagel.Image;
 import bagel.util.Point;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Enemy that moves along a path and drops a key when defeated
  */
 public class KeyBulletKin {
+    private final GameWorld world;
     private Point position;
-    private final Image image;
+    private Point tickStartPosition;
+    private final Sprite image;
     private double health;
     private boolean active = false;
     private boolean dead = false;
     private final ArrayList<Point> path;
     private int currentPathIndex = 0;
+    private Point startPosition;
+    private int startPathIndex = 0;
     private final double speed;
     private static final double CONTACT_DAMAGE_PER_FRAME = 0.2;
 
-    public KeyBulletKin(Point startPos) {
+    public KeyBulletKin(GameWorld world, Point startPos) {
+        this.world = world;
         this.position = startPos;
-        this.image = new Image("res/key_bullet_kin.png");
-        this.health = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("keyBulletKinHealth"));
-        this.speed = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("keyBulletKinSpeed"));
+        this.image = SpriteRegistry.get("res/key_bullet_kin.png");
+        this.health = world.getConfig().keyBulletKinHealth;
+        this.speed = world.getConfig().keyBulletKinSpeed;
         this.path = new ArrayList<>();
+        this.startPosition = startPos;
+        this.tickStartPosition = startPos;
     }
 
-    public KeyBulletKin(String pathString) {
-        this.image = new Image("res/key_bullet_kin.png");
-        this.health = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("keyBulletKinHealth"));
-        this.speed = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("keyBulletKinSpeed"));
-        this.path = new ArrayList<>();
+    public KeyBulletKin(GameWorld world, String pathString) {
+        this(world, parsePath(pathString));
+    }
 
-        // Parse path coordinates
-        String[] coords = pathString.split(";");
-        for (String coord : coords) {
-            path.add(IOUtils.parseCoords(coord));
-        }
+    public KeyBulletKin(GameWorld world, List<Point> pathPoints) {
+        this.world = world;
+        this.image = SpriteRegistry.get("res/key_bullet_kin.png");
+        this.health = world.getConfig().keyBulletKinHealth;
+        this.speed = world.getConfig().keyBulletKinSpeed;
+        this.path = new ArrayList<>(pathPoints);
 
         if (!path.isEmpty()) {
             this.position = path.get(0);
@@ -43,10 +49,35 @@ public class KeyBulletKin {
         } else {
             this.position = new Point(0, 0);
         }
+        this.startPosition = position;
+        this.tickStartPosition = position;
+        this.startPathIndex = currentPathIndex;
+    }
+
+    private static List<Point> parsePath(String pathString) {
+        // Parse path coordinates
+        List<Point> points = new ArrayList<>();
+        for (String coord : pathString.split(";")) {
+            points.add(IOUtils.parseCoords(coord));
+        }
+        return points;
+    }
+
+    /**
+     * Restore the enemy to how it was when the level was loaded
+     */
+    public void reset() {
+        position = startPosition;
+        tickStartPosition = startPosition;
+        currentPathIndex = startPathIndex;
+        health = world.getConfig().keyBulletKinHealth;
+        active = false;
+        dead = false;
     }
 
     public void update(Player player) {
         if (!active || dead) return;
+        tickStartPosition = position;
 
         // Check collision with player for contact damage
         if (hasCollidedWith(player)) {
@@ -75,7 +106,8 @@ public class KeyBulletKin {
 
     public void draw() {
         if (active && !dead) {
-            image.draw(position.x, position.y);
+            image.drawMoving(tickStartPosition.x, tickStartPosition.y, position.x, position.y,
+                    RenderLayer.CHARACTERS);
         }
     }
 
@@ -113,11 +145,33 @@ public class KeyBulletKin {
         return position;
     }
 
+    int getCurrentPathIndex() {
+        return currentPathIndex;
+    }
+
+    double getHealth() {
+        return health;
+    }
+
+    /**
+     * Put the enemy back into a state captured earlier, e.g. by the RewindBuffer
+     */
+    void restoreState(Point position, int pathIndex, double health, boolean active, boolean dead) {
+        this.position = position;
+        this.tickStartPosition = position;
+        this.currentPathIndex = pathIndex;
+        this.health = health;
+        this.active = active;
+        this.dead = dead;
+    }
+
     public void addPathPoint(Point point) {
         path.add(point);
         if (path.size() == 1) {
             position = point;
             currentPathIndex = 0;
+            startPosition = point;
+            startPathIndex = 0;
         }
     }
 }
\ No newline at end of file
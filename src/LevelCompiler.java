@@ -0,0 +1,91 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Compiles the level layout in a properties file into the binary format read by LevelSpec.load.
+ * Usage: LevelCompiler [res/app.properties] [res/level.bin]
+ *
+ * Layout (big-endian):
+ *   int magic, short version, long checksum of the source properties file
+ *   int string count, then each string as short length + UTF-8 bytes
+ *   int room count, then per room: int name index, int group count
+ *     per group: int object type index, int entity count, then per entity:
+ *       float x, float y, int argument index (-1 if none), double argument as a number (NaN if it isn't one)
+ */
+public class LevelCompiler {
+    public static final int MAGIC = 0x53444C56; // "SDLV"
+    public static final short VERSION = 2;
+    public static final int NO_ARGUMENT = -1;
+    static final int ENTITY_BYTES = Float.BYTES * 2 + Integer.BYTES + Double.BYTES;
+
+    public static void main(String[] args) throws IOException {
+        String propsFile = args.length > 0 ? args[0] : "res/app.properties";
+        String levelFile = args.length > 1 ? args[1] : "res/level.bin";
+
+        Properties gameProps = IOUtils.readPropertiesFile(propsFile);
+        compile(LevelSpec.parse(gameProps), IOUtils.checksum(propsFile), levelFile);
+    }
+
+    public static void compile(LevelSpec level, long sourceChecksum, String levelFile) throws IOException {
+        // Every room name, object type and argument goes into one string table so the loader decodes each once
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndices = new HashMap<>();
+        for (Map.Entry<String, RoomSpec> room : level.getRooms().entrySet()) {
+            intern(room.getKey(), strings, stringIndices);
+            for (Map.Entry<String, List<EntitySpec>> group : room.getValue().getEntities().entrySet()) {
+                intern(group.getKey(), strings, stringIndices);
+                for (EntitySpec entity : group.getValue()) {
+                    if (entity.argument != null) {
+                        intern(entity.argument, strings, stringIndices);
+                    }
+                }
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(levelFile)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(sourceChecksum);
+
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(level.getRooms().size());
+            for (Map.Entry<String, RoomSpec> room : level.getRooms().entrySet()) {
+                Map<String, List<EntitySpec>> groups = room.getValue().getEntities();
+                out.writeInt(stringIndices.get(room.getKey()));
+                out.writeInt(groups.size());
+
+                for (Map.Entry<String, List<EntitySpec>> group : groups.entrySet()) {
+                    out.writeInt(stringIndices.get(group.getKey()));
+                    out.writeInt(group.getValue().size());
+                    for (EntitySpec entity : group.getValue()) {
+                        out.writeFloat((float) entity.position.x);
+                        out.writeFloat((float) entity.position.y);
+                        out.writeInt(entity.argument == null ? NO_ARGUMENT : stringIndices.get(entity.argument));
+                        out.writeDouble(entity.value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void intern(String string, List<String> strings, Map<String, Integer> stringIndices) {
+        if (!stringIndices.containsKey(string)) {
+            stringIndices.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+}
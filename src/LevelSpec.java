@@ -0,0 +1,163 @@
+import bagel.util.Point;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Level layout indexed by room, built in a single pass over the game properties.
+ * Level keys have the form "objectType.roomName" and values are ';' separated "x,y[,argument]" entries.
+ */
+public class LevelSpec {
+    private static final RoomSpec EMPTY_ROOM = new RoomSpec();
+
+    /** Object types whose argument must be a number */
+    private static final Set<String> NUMERIC_TYPES = Set.of("treasurebox");
+
+    /** Every object type the rooms read; other keys are settings such as the window size or fonts */
+    private static final Set<String> OBJECT_TYPES = Set.of("door", "primarydoor", "secondarydoor", "restartarea",
+            "wall", "river", "table", "basket", "treasurebox", "keyBulletKin", "bulletKin", "ashenBulletKin");
+
+    private final Map<String, RoomSpec> rooms = new HashMap<>();
+
+    /**
+     * @throws IllegalArgumentException if an entry of a level object can't be parsed
+     */
+    public static LevelSpec parse(Properties gameProps) {
+        LevelSpec level = new LevelSpec();
+        for (String key : gameProps.stringPropertyNames()) {
+            int separator = key.lastIndexOf('.');
+            if (separator <= 0 || separator == key.length() - 1
+                    || !OBJECT_TYPES.contains(key.substring(0, separator))) {
+                continue;
+            }
+
+            String value = gameProps.getProperty(key);
+            // "0" marks a room without any of this object type
+            if (value.equals("0")) {
+                continue;
+            }
+
+            String objectType = key.substring(0, separator);
+            RoomSpec room = level.rooms.computeIfAbsent(key.substring(separator + 1), name -> new RoomSpec());
+            for (String entry : value.split(";")) {
+                EntitySpec entity;
+                try {
+                    entity = EntitySpec.parse(entry);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                    throw new IllegalArgumentException(String.format("Property '%s' has a bad entry: %s", key, entry),
+                            ex);
+                }
+                if (NUMERIC_TYPES.contains(objectType) && Double.isNaN(entity.value)) {
+                    throw new IllegalArgumentException(String.format("Property '%s' needs a number in entry: %s",
+                            key, entry));
+                }
+                room.add(objectType, entity);
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Load a level compiled by LevelCompiler through a memory-mapped file, without any string parsing
+     * @param sourceChecksum checksum of the properties file the level must have been compiled from
+     * @throws IOException if the file can't be read, isn't a compiled level, is out of date or is corrupt
+     */
+    public static LevelSpec load(String levelFile, long sourceChecksum) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(levelFile), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        checkRemaining(buffer, Integer.BYTES + Short.BYTES + Long.BYTES, levelFile);
+        if (buffer.getInt() != LevelCompiler.MAGIC) {
+            throw new IOException(String.format("%s is not a compiled level", levelFile));
+        }
+        short version = buffer.getShort();
+        if (version != LevelCompiler.VERSION) {
+            throw new IOException(String.format("Unsupported level version %d", version));
+        }
+        if (buffer.getLong() != sourceChecksum) {
+            throw new IOException(String.format("%s is out of date, recompile it with LevelCompiler", levelFile));
+        }
+
+        String[] strings = new String[readCount(buffer, Short.BYTES, levelFile)];
+        for (int i = 0; i < strings.length; i++) {
+            checkRemaining(buffer, Short.BYTES, levelFile);
+            byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+            checkRemaining(buffer, bytes.length, levelFile);
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        LevelSpec level = new LevelSpec();
+        int roomCount = readCount(buffer, Integer.BYTES * 2, levelFile);
+        for (int i = 0; i < roomCount; i++) {
+            RoomSpec room = new RoomSpec();
+            level.rooms.put(readString(buffer, strings, levelFile), room);
+
+            int groupCount = readCount(buffer, Integer.BYTES * 2, levelFile);
+            for (int j = 0; j < groupCount; j++) {
+                String objectType = readString(buffer, strings, levelFile);
+                int entityCount = readCount(buffer, LevelCompiler.ENTITY_BYTES, levelFile);
+                for (int k = 0; k < entityCount; k++) {
+                    Point position = new Point(buffer.getFloat(), buffer.getFloat());
+                    int argument = buffer.getInt();
+                    double value = buffer.getDouble();
+                    if (argument != LevelCompiler.NO_ARGUMENT && (argument < 0 || argument >= strings.length)) {
+                        throw new IOException(String.format("%s refers to missing string %d", levelFile, argument));
+                    }
+                    room.add(objectType, new EntitySpec(position,
+                            argument == LevelCompiler.NO_ARGUMENT ? null : strings[argument], value));
+                }
+            }
+        }
+        return level;
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, long bytes, String levelFile) throws IOException {
+        if (buffer.remaining() < bytes) {
+            throw new IOException(String.format("%s is truncated", levelFile));
+        }
+    }
+
+    /**
+     * Read a count of items that take at least itemBytes each, checking they can all fit in the rest of the file
+     */
+    private static int readCount(ByteBuffer buffer, int itemBytes, String levelFile) throws IOException {
+        checkRemaining(buffer, Integer.BYTES, levelFile);
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IOException(String.format("%s has a negative count %d", levelFile, count));
+        }
+        checkRemaining(buffer, (long) count * itemBytes, levelFile);
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer, String[] strings, String levelFile) throws IOException {
+        checkRemaining(buffer, Integer.BYTES, levelFile);
+        int index = buffer.getInt();
+        if (index < 0 || index >= strings.length) {
+            throw new IOException(String.format("%s refers to missing string %d", levelFile, index));
+        }
+        return strings[index];
+    }
+
+    Map<String, RoomSpec> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * @return the entities of the given room, or an empty room if the level has none
+     */
+    public RoomSpec getRoom(String roomName) {
+        return rooms.getOrDefault(roomName, EMPTY_ROOM);
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Renderer that discards every draw call, used when the game runs headless
+ */
+public class NullRenderer implements Renderer {
+    @Override
+    public void drawImage(Sprite sprite, double x, double y, RenderLayer layer) {
+    }
+
+    @Override
+    public void drawLayer(BackgroundLayer layer) {
+    }
+
+    @Override
+    public void drawText(String text, int fontSize, double x, double y, RenderLayer layer) {
+    }
+
+    @Override
+    public double getTextWidth(String text, int fontSize) {
+        return 0;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * The state of every world of an AgentEnvironment after a step, in primitive arrays indexed by world. The player's
+ * bullets and the enemies' fireballs are each packed maxBullets to a world, so world w's start at index w * maxBullets.
+ * The shooting enemies are packed the same way, MAX_SHOOTERS to a world.
+ */
+public class Observations {
+    public static final int MAX_SHOOTERS = 16;
+
+    public final int maxBullets;
+
+    public final double[] playerX;
+    public final double[] playerY;
+    public final double[] health;
+    public final double[] coins;
+    public final int[] keys;
+    public final int[] roomId;
+    /** True once the world has reached the end room, after winning or dying */
+    public final boolean[] done;
+
+    /** The KeyBulletKin of the current room, if it is active and alive */
+    public final boolean[] enemyVisible;
+    public final double[] enemyX;
+    public final double[] enemyY;
+
+    /** The live BulletKins and AshenBulletKins of the current room, if it has started */
+    public final int[] shooterCount;
+    public final double[] shooterX;
+    public final double[] shooterY;
+    public final boolean[] shooterAshen;
+
+    public final int[] bulletCount;
+    public final double[] bulletX;
+    public final double[] bulletY;
+
+    /** Centres of the live fireballs of the current room's BulletKins and AshenBulletKins */
+    public final int[] fireballCount;
+    public final double[] fireballX;
+    public final double[] fireballY;
+
+    public Observations(int worldCount, int maxBullets) {
+        this.maxBullets = maxBullets;
+        playerX = new double[worldCount];
+        playerY = new double[worldCount];
+        health = new double[worldCount];
+        coins = new double[worldCount];
+        keys = new int[worldCount];
+        roomId = new int[worldCount];
+        done = new boolean[worldCount];
+        enemyVisible = new boolean[worldCount];
+        enemyX = new double[worldCount];
+        enemyY = new double[worldCount];
+        shooterCount = new int[worldCount];
+        shooterX = new double[worldCount * MAX_SHOOTERS];
+        shooterY = new double[worldCount * MAX_SHOOTERS];
+        shooterAshen = new boolean[worldCount * MAX_SHOOTERS];
+        bulletCount = new int[worldCount];
+        bulletX = new double[worldCount * maxBullets];
+        bulletY = new double[worldCount * maxBullets];
+        fireballCount = new int[worldCount];
+        fireballX = new double[worldCount * maxBullets];
+        fireballY = new double[worldCount * maxBullets];
+    }
+}
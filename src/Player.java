@@ -1,44 +1,69 @@
-import bagel.*;
+import bagel.Keys;
+import bagel.MouseButtons;
 import bagel.util.Point;
 import bagel.util.Rectangle;
 
-import java.util.ArrayList;
-
 /**
  * Player character that can move around and between rooms, shoot, defeat enemies, collect coins and keys
  */
 public class Player {
+    private final GameWorld world;
     private Point prevPosition;
     private Point position;
-    private Image currImage;
+    private Point tickStartPosition;
+    private Sprite currImage;
     private double health;
     private double speed;
     private double coins = 0;
     private int keys = 0;
+    public static final int MAX_WEAPON_LEVEL = 2;
+
     private int weaponLevel = 0; // 0=Standard, 1=Advanced, 2=Elite
     private boolean faceLeft = false;
     private CharacterType characterType = CharacterType.NONE;
     private int shootCooldown = 0;
     private final int shootFrequency;
-    private final ArrayList<Bullet> bullets;
+    private final BulletPool bullets;
 
-    private static final Image RIGHT_IMAGE = new Image("res/player_right.png");
-    private static final Image LEFT_IMAGE = new Image("res/player_left.png");
-    private static final Image ROBOT_RIGHT = new Image("res/robot_right.png");
-    private static final Image ROBOT_LEFT = new Image("res/robot_left.png");
-    private static final Image MARINE_RIGHT = new Image("res/marine_right.png");
-    private static final Image MARINE_LEFT = new Image("res/marine_left.png");
+    private static final Sprite RIGHT_IMAGE = SpriteRegistry.get("res/player_right.png");
+    private static final Sprite LEFT_IMAGE = SpriteRegistry.get("res/player_left.png");
+    private static final Sprite ROBOT_RIGHT = SpriteRegistry.get("res/robot_right.png");
+    private static final Sprite ROBOT_LEFT = SpriteRegistry.get("res/robot_left.png");
+    private static final Sprite MARINE_RIGHT = SpriteRegistry.get("res/marine_right.png");
+    private static final Sprite MARINE_LEFT = SpriteRegistry.get("res/marine_left.png");
 
-    public Player(Point position) {
+    public Player(GameWorld world, Point position) {
+        this.world = world;
         this.position = position;
+        this.tickStartPosition = position;
         this.currImage = RIGHT_IMAGE;
-        this.speed = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("movingSpeed"));
-        this.health = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("initialHealth"));
-        this.shootFrequency = Integer.parseInt(ShadowDungeon.getGameProps().getProperty("bulletfreq"));
-        this.bullets = new ArrayList<>();
+        this.speed = world.getConfig().movingSpeed;
+        this.health = world.getConfig().initialHealth;
+        this.shootFrequency = world.getConfig().bulletFrequency;
+        this.bullets = new BulletPool(world);
     }
 
-    public void update(Input input) {
+    /**
+     * Restore the player to a freshly started game at the given position
+     */
+    public void reset(Point startPosition) {
+        prevPosition = null;
+        position = startPosition;
+        tickStartPosition = startPosition;
+        currImage = RIGHT_IMAGE;
+        health = world.getConfig().initialHealth;
+        coins = 0;
+        keys = 0;
+        weaponLevel = 0;
+        faceLeft = false;
+        characterType = CharacterType.NONE;
+        shootCooldown = 0;
+        bullets.clear();
+    }
+
+    public void update(InputSource input) {
+        tickStartPosition = position;
+
         // Check movement keys and mouse cursor
         double currX = position.x;
         double currY = position.y;
@@ -62,7 +87,8 @@ public class Player {
         Rectangle rect = currImage.getBoundingBoxAt(new Point(currX, currY));
         Point topLeft = rect.topLeft();
         Point bottomRight = rect.bottomRight();
-        if (topLeft.x >= 0 && bottomRight.x <= Window.getWidth() && topLeft.y >= 0 && bottomRight.y <= Window.getHeight()) {
+        if (topLeft.x >= 0 && bottomRight.x <= world.getConfig().windowWidth
+                && topLeft.y >= 0 && bottomRight.y <= world.getConfig().windowHeight) {
             move(currX, currY);
         }
 
@@ -73,16 +99,14 @@ public class Player {
             }
 
             if (input.isDown(MouseButtons.LEFT) && shootCooldown == 0) {
-                shoot(new Point(input.getMouseX(), input.getMouseY()));
+                shoot(input.getMouseX(), input.getMouseY());
                 shootCooldown = shootFrequency;
             }
         }
 
         // Update bullets
-        bullets.removeIf(bullet -> {
-            bullet.update();
-            return !bullet.isActive();
-        });
+        bullets.update();
+        selectImage();
     }
 
     public void move(double x, double y) {
@@ -90,8 +114,18 @@ public class Player {
         position = new Point(x, y);
     }
 
-    public void draw() {
-        // Select appropriate image based on character and direction
+    /**
+     * Move the player without walking there, e.g. through a door, so they aren't drawn sliding across the window
+     */
+    public void teleport(double x, double y) {
+        move(x, y);
+        tickStartPosition = position;
+    }
+
+    /**
+     * Select appropriate image based on character and direction
+     */
+    private void selectImage() {
         switch (characterType) {
             case ROBOT:
                 currImage = faceLeft ? ROBOT_LEFT : ROBOT_RIGHT;
@@ -102,40 +136,52 @@ public class Player {
             default:
                 currImage = faceLeft ? LEFT_IMAGE : RIGHT_IMAGE;
         }
+    }
 
-        currImage.draw(position.x, position.y);
+    public void draw() {
+        currImage.drawMoving(tickStartPosition.x, tickStartPosition.y, position.x, position.y,
+                RenderLayer.CHARACTERS);
 
         // Draw bullets
-        for (Bullet bullet : bullets) {
-            bullet.draw();
-        }
+        bullets.draw();
 
         // Draw UI stats
-        UserInterface.drawStats(health, coins, keys, weaponLevel);
+        world.getUserInterface().drawStats(health, coins, keys, weaponLevel);
     }
 
-    private void shoot(Point targetPos) {
+    private void shoot(double targetX, double targetY) {
         int damage = getWeaponDamage();
-        bullets.add(new Bullet(position, targetPos, damage));
+        bullets.fire(position.x, position.y, targetX, targetY, damage);
     }
 
     private int getWeaponDamage() {
-        switch (weaponLevel) {
-            case 0: return Integer.parseInt(ShadowDungeon.getGameProps().getProperty("weaponStandardDamage"));
-            case 1: return Integer.parseInt(ShadowDungeon.getGameProps().getProperty("weaponAdvanceDamage"));
-            case 2: return Integer.parseInt(ShadowDungeon.getGameProps().getProperty("weaponEliteDamage"));
-            default: return 30;
-        }
+        return world.getConfig().getWeaponDamage(weaponLevel);
     }
 
     public void selectCharacter(CharacterType type) {
         this.characterType = type;
+        selectImage();
+    }
+
+    /**
+     * Put the player back into a saved state. Bullets in flight and the shooting cooldown are not saved.
+     */
+    public void restoreState(Point position, double health, double coins, int keys, int weaponLevel,
+                             CharacterType characterType) {
+        move(position.x, position.y);
+        tickStartPosition = position;
+        this.health = health;
+        this.coins = coins;
+        this.keys = keys;
+        this.weaponLevel = weaponLevel;
+        this.characterType = characterType;
+        selectImage();
     }
 
     public void earnCoins(double coins) {
         // Robot gets bonus coins
         if (characterType == CharacterType.ROBOT) {
-            coins += Double.parseDouble(ShadowDungeon.getGameProps().getProperty("robotExtraCoin"));
+            coins += world.getConfig().robotExtraCoin;
         }
         this.coins += coins;
     }
@@ -153,8 +199,8 @@ public class Player {
     }
 
     public boolean upgradeWeapon() {
-        int cost = Integer.parseInt(ShadowDungeon.getGameProps().getProperty("weaponPurchase"));
-        if (weaponLevel < 2 && coins >= cost) {
+        int cost = world.getConfig().weaponPurchase;
+        if (weaponLevel < MAX_WEAPON_LEVEL && coins >= cost) {
             coins -= cost;
             weaponLevel++;
             return true;
@@ -163,8 +209,8 @@ public class Player {
     }
 
     public boolean purchaseHealth() {
-        int cost = Integer.parseInt(ShadowDungeon.getGameProps().getProperty("healthPurchase"));
-        double healthGain = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("healthPurchase"));
+        int cost = world.getConfig().healthPurchase;
+        double healthGain = world.getConfig().healthPurchase;
         if (coins >= cost) {
             coins -= cost;
             health += healthGain;
@@ -176,13 +222,13 @@ public class Player {
     public void receiveDamage(double damage) {
         // Marine is immune to river damage
         if (characterType == CharacterType.MARINE &&
-                damage == Double.parseDouble(ShadowDungeon.getGameProps().getProperty("riverDamagePerFrame"))) {
+                damage == world.getConfig().riverDamagePerFrame) {
             return;
         }
 
         health -= damage;
         if (health <= 0) {
-            ShadowDungeon.changeToGameOverRoom();
+            world.changeToGameOverRoom();
         }
     }
 
@@ -190,7 +236,7 @@ public class Player {
         return position;
     }
 
-    public Image getCurrImage() {
+    public Sprite getCurrImage() {
         return currImage;
     }
 
@@ -198,7 +244,7 @@ public class Player {
         return prevPosition;
     }
 
-    public ArrayList<Bullet> getBullets() {
+    public BulletPool getBullets() {
         return bullets;
     }
 
@@ -222,12 +268,3 @@ public class Player {
         return health;
     }
 }
-
-/**
- * Enum for character types
- */
-enum CharacterType {
-    NONE,
-    ROBOT,
-    MARINE
-}
\ No newline at end of file
@@ -1,72 +1,56 @@
-import bagel.Image;
-import bagel.Input;
 import bagel.Keys;
 import bagel.util.Point;
 
-import java.util.Map;
-import java.util.Properties;
-
 /**
  * Room where the game starts and character selection happens
  */
-public class PrepRoom {
+public class PrepRoom implements Room {
+    private final GameWorld world;
     private Player player;
     private Door door;
+    private Door[] doors;
     private RestartArea restartArea;
     private boolean stopCurrentUpdateCall = false;
-    private Image robotSprite;
-    private Image marineSprite;
+    private Sprite robotSprite;
+    private Sprite marineSprite;
     private Point robotPosition;
     private Point marinePosition;
 
-    public void initEntities(Properties gameProperties) {
-        // Find configuration for this room
-        for (Map.Entry<Object, Object> entry: gameProperties.entrySet()) {
-            String roomSuffix = String.format(".%s", ShadowDungeon.PREP_ROOM_NAME);
-            if (entry.getKey().toString().contains(roomSuffix)) {
-                String objectType = entry.getKey().toString().substring(0, entry.getKey().toString().length() - roomSuffix.length());
-                String propertyValue = entry.getValue().toString();
-
-                switch (objectType) {
-                    case "door":
-                        String[] coordinates = propertyValue.split(",");
-                        door = new Door(IOUtils.parseCoords(propertyValue), coordinates[2]);
-                        break;
-                    case "restartarea":
-                        restartArea = new RestartArea(IOUtils.parseCoords(propertyValue));
-                        break;
-                    default:
-                }
-            }
-        }
+    public PrepRoom(GameWorld world) {
+        this.world = world;
+    }
 
-        // Load character sprites for display
-        robotSprite = new Image("res/robot_sprite.png");
-        marineSprite = new Image("res/marine_sprite.png");
-        robotPosition = IOUtils.parseCoords(gameProperties.getProperty("Robot"));
-        marinePosition = IOUtils.parseCoords(gameProperties.getProperty("Marine"));
+    @Override
+    public String getName() {
+        return ShadowDungeon.PREP_ROOM_NAME;
     }
 
-    public void update(Input input) {
-        UserInterface.drawStartMessages();
+    @Override
+    public void initEntities(RoomSpec room) {
+        EntitySpec doorSpec = room.getFirst("door");
+        door = new Door(world, doorSpec.position, doorSpec.argument);
+        doors = new Door[] {door};
+        restartArea = new RestartArea(world, room.getFirst("restartarea").position);
 
-        // Draw character sprites
-        robotSprite.draw(robotPosition.x, robotPosition.y);
-        marineSprite.draw(marinePosition.x, marinePosition.y);
+        // Load character sprites for display
+        robotSprite = SpriteRegistry.get("res/robot_sprite.png");
+        marineSprite = SpriteRegistry.get("res/marine_sprite.png");
+        robotPosition = world.getConfig().robotPosition;
+        marinePosition = world.getConfig().marinePosition;
+    }
 
-        // Update and draw all game objects in this room
+    @Override
+    public void update(InputSource input) {
+        // Update all game objects in this room
         door.update(player);
-        door.draw();
         if (stopUpdatingEarlyIfNeeded()) {
             return;
         }
 
         restartArea.update(input, player);
-        restartArea.draw();
 
         if (player != null) {
             player.update(input);
-            player.draw();
         }
 
         // Character selection and door unlock mechanism
@@ -89,6 +73,23 @@ public class PrepRoom {
         }
     }
 
+    @Override
+    public void draw() {
+        world.getUserInterface().drawStartMessages();
+        if (!AssetManager.isDone()) {
+            world.getUserInterface().drawLoadingProgress(AssetManager.getProgress());
+        }
+
+        // Draw character sprites
+        robotSprite.draw(robotPosition.x, robotPosition.y);
+        marineSprite.draw(marinePosition.x, marinePosition.y);
+        door.draw();
+        restartArea.draw();
+        if (player != null) {
+            player.draw();
+        }
+    }
+
     private boolean stopUpdatingEarlyIfNeeded() {
         if (stopCurrentUpdateCall) {
             player = null;
@@ -98,10 +99,22 @@ public class PrepRoom {
         return false;
     }
 
+    /**
+     * Restore the room to how it was when the level was loaded
+     */
+    @Override
+    public void reset() {
+        player = null;
+        stopCurrentUpdateCall = false;
+        door.reset();
+    }
+
+    @Override
     public void setPlayer(Player player) {
         this.player = player;
     }
 
+    @Override
     public void stopCurrentUpdateCall() {
         stopCurrentUpdateCall = true;
     }
@@ -110,7 +123,13 @@ public class PrepRoom {
         return door;
     }
 
-    public Door findDoorByDestination() {
+    @Override
+    public Door findDoorByDestination(int roomId) {
         return door;
     }
+
+    @Override
+    public Door[] getDoors() {
+        return doors;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+/**
+ * The draw commands recorded during one simulation tick, kept as a sort key per command plus parallel arrays.
+ * Sorting by layer and then texture lets the target batch every sprite that shares a texture. Once published a frame
+ * is only read, and it can be drawn any number of times at different interpolation points.
+ */
+public class RenderFrame {
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int TEXTURE_BITS = 20;
+    private static final long TEXTURE_MASK = (1L << TEXTURE_BITS) - 1;
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+    private static final RenderLayer[] LAYERS = RenderLayer.values();
+
+    /** Text has no texture of its own, so it sorts after every sprite in its layer */
+    static final long TEXT_TEXTURE = TEXTURE_MASK;
+    static final long LAYER_TEXTURE = 0;
+
+    // Each command is a sort key whose low bits index into the parallel arrays
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private Object[] payloads = new Object[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private double[] fromXs = new double[INITIAL_CAPACITY];
+    private double[] fromYs = new double[INITIAL_CAPACITY];
+    private int[] fontSizes = new int[INITIAL_CAPACITY];
+    private boolean[] centred = new boolean[INITIAL_CAPACITY];
+    private int count = 0;
+    private long tickTime;
+
+    void add(RenderLayer layer, long texture, Object payload, double fromX, double fromY, double x, double y,
+             int fontSize, boolean isCentred) {
+        if (count == keys.length) {
+            grow();
+        }
+        int i = count++;
+        keys[i] = ((long) layer.ordinal() << (32 + TEXTURE_BITS)) | ((texture & TEXTURE_MASK) << 32) | i;
+        payloads[i] = payload;
+        fromXs[i] = fromX;
+        fromYs[i] = fromY;
+        xs[i] = x;
+        ys[i] = y;
+        fontSizes[i] = fontSize;
+        centred[i] = isCentred;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        fromXs = Arrays.copyOf(fromXs, capacity);
+        fromYs = Arrays.copyOf(fromYs, capacity);
+        fontSizes = Arrays.copyOf(fontSizes, capacity);
+        centred = Arrays.copyOf(centred, capacity);
+    }
+
+    void clear() {
+        Arrays.fill(payloads, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Sort the commands by layer, then texture, then submission order, and stamp the frame with the tick time
+     */
+    void finish(long tickTime) {
+        Arrays.sort(keys, 0, count);
+        this.tickTime = tickTime;
+    }
+
+    /**
+     * Send the commands to a renderer. Moving sprites are drawn the given fraction of the way from their position at
+     * the start of the tick to their position at the end of it.
+     */
+    public void draw(Renderer target, double alpha) {
+        for (int k = 0; k < count; k++) {
+            int i = (int) (keys[k] & INDEX_MASK);
+            RenderLayer layer = LAYERS[(int) (keys[k] >>> (32 + TEXTURE_BITS))];
+            Object payload = payloads[i];
+            if (payload instanceof Sprite) {
+                target.drawImage((Sprite) payload, fromXs[i] + (xs[i] - fromXs[i]) * alpha,
+                        fromYs[i] + (ys[i] - fromYs[i]) * alpha, layer);
+            } else if (payload instanceof String) {
+                if (centred[i]) {
+                    target.drawTextCentered((String) payload, fontSizes[i], xs[i], ys[i], layer);
+                } else {
+                    target.drawText((String) payload, fontSizes[i], xs[i], ys[i], layer);
+                }
+            } else {
+                target.drawLayer((BackgroundLayer) payload);
+            }
+        }
+    }
+
+    /**
+     * @return the System.nanoTime at which the tick that recorded this frame finished
+     */
+    public long getTickTime() {
+        return tickTime;
+    }
+
+    public int size() {
+        return count;
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Draw order of sprites and text, from the back of the screen to the front. Within a layer sprites are grouped by
+ * texture and text is drawn after them. HUD holds the stats and messages, which the store in OVERLAY covers.
+ */
+public enum RenderLayer {
+    BACKGROUND, FLOOR, OBJECTS, CHARACTERS, PROJECTILES, HUD, OVERLAY
+}
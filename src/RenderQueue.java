@@ -0,0 +1,91 @@
+/**
+ * Renderer that records a tick's draw commands into the back frame of a FrameExchange, to be drawn later by the
+ * window thread sorted by layer and texture, so sprites sharing a texture are drawn together. Sprites entirely
+ * outside the window are culled when submitted. Nothing here touches GL, so ticks can record from any thread.
+ */
+public class RenderQueue implements Renderer {
+    private final FrameExchange exchange;
+    private final double viewWidth;
+    private final double viewHeight;
+    private RenderFrame frame;
+
+    public RenderQueue(FrameExchange exchange, double viewWidth, double viewHeight) {
+        this.exchange = exchange;
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.frame = exchange.getBackFrame();
+    }
+
+    @Override
+    public void drawImage(Sprite sprite, double x, double y, RenderLayer layer) {
+        if (isOffScreen(sprite, x, y)) {
+            return;
+        }
+        frame.add(layer, sprite.getTextureId(), sprite, x, y, x, y, 0, false);
+    }
+
+    @Override
+    public void drawMovingImage(Sprite sprite, double fromX, double fromY, double x, double y, RenderLayer layer) {
+        if (isOffScreen(sprite, x, y)) {
+            return;
+        }
+        frame.add(layer, sprite.getTextureId(), sprite, fromX, fromY, x, y, 0, false);
+    }
+
+    private boolean isOffScreen(Sprite sprite, double x, double y) {
+        double halfWidth = sprite.getWidth() / 2;
+        double halfHeight = sprite.getHeight() / 2;
+        return x + halfWidth < 0 || x - halfWidth > viewWidth || y + halfHeight < 0 || y - halfHeight > viewHeight;
+    }
+
+    @Override
+    public void drawLayer(BackgroundLayer layer) {
+        frame.add(RenderLayer.FLOOR, RenderFrame.LAYER_TEXTURE, layer, 0, 0, 0, 0, 0, false);
+    }
+
+    @Override
+    public void drawText(String text, int fontSize, double x, double y, RenderLayer layer) {
+        frame.add(layer, RenderFrame.TEXT_TEXTURE, text, x, y, x, y, fontSize, false);
+    }
+
+    /**
+     * Centred text is recorded as it is and centred by the window's renderer when the frame is drawn, so it lines up
+     * exactly with the font that draws it
+     */
+    @Override
+    public void drawTextCentered(String text, int fontSize, double centreX, double y, RenderLayer layer) {
+        frame.add(layer, RenderFrame.TEXT_TEXTURE, text, centreX, y, centreX, y, fontSize, true);
+    }
+
+    /**
+     * Fonts belong to the window thread, so text is measured from the font file instead
+     */
+    @Override
+    public double getTextWidth(String text, int fontSize) {
+        return TextMetrics.get(FontRegistry.DEFAULT_FONT).getWidth(text, fontSize);
+    }
+
+    /**
+     * Start recording a new tick into the back frame
+     */
+    public void beginTick() {
+        frame = exchange.getBackFrame();
+        frame.clear();
+    }
+
+    /**
+     * Sort the tick's commands and publish them to the window thread
+     */
+    public void endTick() {
+        frame.finish(System.nanoTime());
+        exchange.publish();
+        frame = exchange.getBackFrame();
+    }
+
+    /**
+     * @return the number of commands recorded so far this tick
+     */
+    public int size() {
+        return frame.size();
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Destination for everything the game draws, so the simulation can run with or without a window
+ */
+public interface Renderer {
+    void drawImage(Sprite sprite, double x, double y, RenderLayer layer);
+
+    /**
+     * Draw a sprite that moved from one position to another during the last tick. Renderers that don't interpolate
+     * between ticks just draw it at its new position.
+     */
+    default void drawMovingImage(Sprite sprite, double fromX, double fromY, double x, double y, RenderLayer layer) {
+        drawImage(sprite, x, y, layer);
+    }
+
+    void drawLayer(BackgroundLayer layer);
+
+    void drawText(String text, int fontSize, double x, double y, RenderLayer layer);
+
+    /**
+     * Draw text horizontally centred on the given x position
+     */
+    default void drawTextCentered(String text, int fontSize, double centreX, double y, RenderLayer layer) {
+        drawText(text, fontSize, centreX - getTextWidth(text, fontSize) / 2, y, layer);
+    }
+
+    double getTextWidth(String text, int fontSize);
+}
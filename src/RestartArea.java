@@ -1,5 +1,3 @@
-import bagel.Image;
-import bagel.Input;
 import bagel.Keys;
 import bagel.util.Point;
 
@@ -7,22 +5,24 @@ import bagel.util.Point;
  * Area in Prep or End Room where the player can trigger a game reset
  */
 public class RestartArea {
+    private final GameWorld world;
     private final Point position;
-    private final Image image;
+    private final Sprite image;
 
-    public RestartArea(Point position) {
+    public RestartArea(GameWorld world, Point position) {
+        this.world = world;
         this.position = position;
-        this.image = new Image("res/restart_area.png");
+        this.image = SpriteRegistry.get("res/restart_area.png");
     }
 
-    public void update(Input input, Player player) {
+    public void update(InputSource input, Player player) {
         if (hasCollidedWith(player) && input.wasPressed(Keys.ENTER)) {
-            ShadowDungeon.resetGameState(ShadowDungeon.getGameProps());
+            world.resetGameState();
         }
     }
 
     public void draw() {
-        image.draw(position.x, position.y);
+        image.draw(position.x, position.y, RenderLayer.FLOOR);
     }
 
     public boolean hasCollidedWith(Player player) {
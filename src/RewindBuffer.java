@@ -0,0 +1,347 @@
+import bagel.util.Point;
+
+import java.util.Arrays;
+
+/**
+ * Ring of the last few seconds of ticks, so the game can be played backwards one tick at a time. Each tick's state is
+ * flattened into a fixed vector of longs and only the words that changed since the previous tick are stored, XORed
+ * with their old value, in a preallocated byte ring. Once either ring is full the oldest ticks are dropped, so memory
+ * stays the same however long the game runs and capturing a tick never allocates.
+ * Only the player with all of its bullets and the current room's doors and KeyBulletKin are captured, so rewinding
+ * stops at the tick the player entered the current room, and everything is forgotten once the game is restarted or
+ * loaded from a save. The state vector has room for a full bullet pool, but only the slots of live bullets are
+ * compared and stored.
+ */
+public class RewindBuffer {
+    public static final int DEFAULT_SECONDS = 10;
+
+    private static final int ROOM_ID = 0;
+    private static final int PLAYER_X = 1;
+    private static final int PLAYER_Y = 2;
+    private static final int PLAYER_HEALTH = 3;
+    private static final int PLAYER_COINS = 4;
+    private static final int PLAYER_KEYS = 5;
+    private static final int PLAYER_WEAPON = 6;
+    private static final int PLAYER_CHARACTER = 7;
+    private static final int ROOM_FLAGS = 8;
+    private static final int ENEMY_X = 9;
+    private static final int ENEMY_Y = 10;
+    private static final int ENEMY_PATH_INDEX = 11;
+    private static final int ENEMY_HEALTH = 12;
+    private static final int ENEMY_FLAGS = 13;
+    private static final int BULLET_COUNT = 14;
+    private static final int BULLETS = 15;
+    private static final int WORDS_PER_BULLET = 5;
+
+    private static final int ROOM_COMPLETE = 1;
+    private static final int DOOR_BITS = 3;
+    private static final int ENEMY_ACTIVE = 1;
+    private static final int ENEMY_DEAD = 2;
+    private static final int ENEMY_PRESENT = 4;
+
+    /** Average bytes budgeted per tick; ticks with more changes just push older ones out sooner */
+    private static final int BYTES_PER_TICK = 128;
+
+    private final int maxBullets;
+    /** Largest a single tick can encode to: a count, then a gap and a value for every word */
+    private final int maxTickBytes;
+    private final long[] current;
+    private final long[] next;
+    // Words of next past this are zero
+    private int nextWords = BULLETS;
+    private final byte[] bytes;
+    private final int[] tickStarts;
+    private final int[] tickLengths;
+    private int gamesStarted = -1;
+    private int oldestTick = 0;
+    private int tickCount = 0;
+    private int bytesUsed = 0;
+    private int bytePosition = 0;
+
+    public RewindBuffer() {
+        this(DEFAULT_SECONDS, BulletPool.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param maxBullets the capacity of the bullet pools this buffer will capture
+     */
+    public RewindBuffer(int seconds, int maxBullets) {
+        if (seconds <= 0 || maxBullets < 0) {
+            throw new IllegalArgumentException(String.format("Cannot keep %d seconds of rewind with %d bullets",
+                    seconds, maxBullets));
+        }
+        int ticks = seconds * ShadowDungeon.TICKS_PER_SECOND;
+        int stateWords = BULLETS + maxBullets * WORDS_PER_BULLET;
+        this.maxBullets = maxBullets;
+        maxTickBytes = 5 + stateWords * (5 + Long.BYTES);
+        current = new long[stateWords];
+        next = new long[stateWords];
+        tickStarts = new int[ticks];
+        tickLengths = new int[ticks];
+        bytes = new byte[Math.max(ticks * BYTES_PER_TICK, maxTickBytes * 2)];
+    }
+
+    /**
+     * Record the world's state at the end of a tick
+     */
+    public void capture(GameWorld world) {
+        if (world.getGamesStarted() != gamesStarted) {
+            clear();
+            gamesStarted = world.getGamesStarted();
+        }
+        BulletPool bullets = world.getPlayer().getBullets();
+        if (bullets.capacity() > maxBullets) {
+            throw new IllegalArgumentException(String.format("Cannot capture %d bullets, only room for %d",
+                    bullets.capacity(), maxBullets));
+        }
+
+        int words = encode(world, next);
+        if (words < nextWords) {
+            Arrays.fill(next, words, nextWords, 0);
+        }
+        nextWords = words;
+        // Everything past the live bullets of both ticks is zero in both
+        int compared = Math.max(words, stateWords(current));
+
+        while (tickCount == tickStarts.length || bytes.length - bytesUsed < maxTickBytes) {
+            dropOldest();
+        }
+
+        int start = bytePosition;
+        int changed = 0;
+        for (int i = 0; i < compared; i++) {
+            if (next[i] != current[i]) {
+                changed++;
+            }
+        }
+
+        putVarint(changed);
+        int lastIndex = -1;
+        for (int i = 0; i < compared; i++) {
+            if (next[i] != current[i]) {
+                putVarint(i - lastIndex - 1);
+                putLong(next[i] ^ current[i]);
+                lastIndex = i;
+            }
+        }
+        System.arraycopy(next, 0, current, 0, compared);
+
+        int slot = (oldestTick + tickCount) % tickStarts.length;
+        tickStarts[slot] = start;
+        tickLengths[slot] = Math.floorMod(bytePosition - start, bytes.length);
+        bytesUsed += tickLengths[slot];
+        tickCount++;
+    }
+
+    /**
+     * Undo the last captured tick and put the world into the state of the one before it. The oldest tick is never
+     * undone, as what it was XORed against may already have been dropped, and neither is a tick that changed room,
+     * as the rooms the player left are not captured.
+     * @return false if there is nothing older left to rewind to
+     */
+    public boolean stepBack(GameWorld world) {
+        if (tickCount <= 1 || world.getGamesStarted() != gamesStarted) {
+            return false;
+        }
+
+        int slot = (oldestTick + tickCount - 1) % tickStarts.length;
+        int position = tickStarts[slot];
+        int changed = (int) getVarint(position);
+        position = skipVarint(position);
+        // Changed words are stored in order, so the room changed if the first one stored is ROOM_ID
+        if (changed > 0 && getVarint(position) == ROOM_ID) {
+            return false;
+        }
+        int index = -1;
+        for (int i = 0; i < changed; i++) {
+            index += (int) getVarint(position) + 1;
+            position = skipVarint(position);
+            current[index] ^= getLong(position);
+            position = (position + Long.BYTES) % bytes.length;
+        }
+
+        bytePosition = tickStarts[slot];
+        bytesUsed -= tickLengths[slot];
+        tickCount--;
+
+        decode(world, current);
+        return true;
+    }
+
+    /**
+     * Forget every captured tick, e.g. after the game was restarted or loaded
+     */
+    public void clear() {
+        oldestTick = 0;
+        tickCount = 0;
+        bytesUsed = 0;
+        bytePosition = 0;
+    }
+
+    /**
+     * @return the number of ticks that can currently be rewound
+     */
+    public int size() {
+        return Math.max(0, tickCount - 1);
+    }
+
+    private void dropOldest() {
+        bytesUsed -= tickLengths[oldestTick];
+        oldestTick = (oldestTick + 1) % tickStarts.length;
+        tickCount--;
+    }
+
+    /**
+     * @return the number of words in use by a state, past which every word is zero
+     */
+    private static int stateWords(long[] state) {
+        return BULLETS + (int) state[BULLET_COUNT] * WORDS_PER_BULLET;
+    }
+
+    /**
+     * Write the world's state into the start of the given vector, leaving the words past the live bullets untouched
+     * @return the number of words written
+     */
+    private static int encode(GameWorld world, long[] state) {
+        Player player = world.getPlayer();
+        state[ROOM_ID] = world.getCurrentRoomId();
+        state[PLAYER_X] = Double.doubleToRawLongBits(player.getPosition().x);
+        state[PLAYER_Y] = Double.doubleToRawLongBits(player.getPosition().y);
+        state[PLAYER_HEALTH] = Double.doubleToRawLongBits(player.getHealth());
+        state[PLAYER_COINS] = Double.doubleToRawLongBits(player.getCoins());
+        state[PLAYER_KEYS] = player.getKeys();
+        state[PLAYER_WEAPON] = player.getWeaponLevel();
+        state[PLAYER_CHARACTER] = player.getCharacterType().ordinal();
+
+        Room room = world.getRooms().get(world.getCurrentRoomId());
+        long roomFlags = room instanceof BattleRoom && ((BattleRoom) room).isComplete() ? ROOM_COMPLETE : 0;
+        Door[] doors = room.getDoors();
+        for (int i = 0; i < doors.length; i++) {
+            roomFlags |= (long) doors[i].getStateBits() << (1 + DOOR_BITS * i);
+        }
+        state[ROOM_FLAGS] = roomFlags;
+
+        KeyBulletKin enemy = room instanceof BattleRoom ? ((BattleRoom) room).getKeyBulletKin() : null;
+        if (enemy != null) {
+            state[ENEMY_X] = Double.doubleToRawLongBits(enemy.getPosition().x);
+            state[ENEMY_Y] = Double.doubleToRawLongBits(enemy.getPosition().y);
+            state[ENEMY_PATH_INDEX] = enemy.getCurrentPathIndex();
+            state[ENEMY_HEALTH] = Double.doubleToRawLongBits(enemy.getHealth());
+            state[ENEMY_FLAGS] = ENEMY_PRESENT | (enemy.isActive() ? ENEMY_ACTIVE : 0)
+                    | (enemy.isDead() ? ENEMY_DEAD : 0);
+        } else {
+            state[ENEMY_X] = 0;
+            state[ENEMY_Y] = 0;
+            state[ENEMY_PATH_INDEX] = 0;
+            state[ENEMY_HEALTH] = 0;
+            state[ENEMY_FLAGS] = 0;
+        }
+
+        BulletPool bullets = player.getBullets();
+        int bulletCount = bullets.size();
+        state[BULLET_COUNT] = bulletCount;
+        for (int i = 0; i < bulletCount; i++) {
+            int word = BULLETS + i * WORDS_PER_BULLET;
+            state[word] = Double.doubleToRawLongBits(bullets.getX(i));
+            state[word + 1] = Double.doubleToRawLongBits(bullets.getY(i));
+            state[word + 2] = Double.doubleToRawLongBits(bullets.getDx(i));
+            state[word + 3] = Double.doubleToRawLongBits(bullets.getDy(i));
+            state[word + 4] = bullets.getDamage(i);
+        }
+        return stateWords(state);
+    }
+
+    private static void decode(GameWorld world, long[] state) {
+        world.setCurrentRoom((int) state[ROOM_ID]);
+
+        Player player = world.getPlayer();
+        player.restoreState(
+                new Point(Double.longBitsToDouble(state[PLAYER_X]), Double.longBitsToDouble(state[PLAYER_Y])),
+                Double.longBitsToDouble(state[PLAYER_HEALTH]),
+                Double.longBitsToDouble(state[PLAYER_COINS]),
+                (int) state[PLAYER_KEYS],
+                (int) state[PLAYER_WEAPON],
+                CharacterType.values()[(int) state[PLAYER_CHARACTER]]);
+
+        Room room = world.getRooms().get(world.getCurrentRoomId());
+        long roomFlags = state[ROOM_FLAGS];
+        if (room instanceof BattleRoom) {
+            ((BattleRoom) room).setComplete((roomFlags & ROOM_COMPLETE) != 0);
+        }
+        Door[] doors = room.getDoors();
+        for (int i = 0; i < doors.length; i++) {
+            doors[i].setStateBits((int) (roomFlags >>> (1 + DOOR_BITS * i)) & ((1 << DOOR_BITS) - 1));
+        }
+
+        KeyBulletKin enemy = room instanceof BattleRoom ? ((BattleRoom) room).getKeyBulletKin() : null;
+        long enemyFlags = state[ENEMY_FLAGS];
+        if (enemy != null && (enemyFlags & ENEMY_PRESENT) != 0) {
+            enemy.restoreState(
+                    new Point(Double.longBitsToDouble(state[ENEMY_X]), Double.longBitsToDouble(state[ENEMY_Y])),
+                    (int) state[ENEMY_PATH_INDEX],
+                    Double.longBitsToDouble(state[ENEMY_HEALTH]),
+                    (enemyFlags & ENEMY_ACTIVE) != 0,
+                    (enemyFlags & ENEMY_DEAD) != 0);
+        }
+
+        BulletPool bullets = player.getBullets();
+        int bulletCount = (int) state[BULLET_COUNT];
+        bullets.setSize(bulletCount);
+        for (int i = 0; i < bulletCount; i++) {
+            int word = BULLETS + i * WORDS_PER_BULLET;
+            bullets.set(i,
+                    Double.longBitsToDouble(state[word]),
+                    Double.longBitsToDouble(state[word + 1]),
+                    Double.longBitsToDouble(state[word + 2]),
+                    Double.longBitsToDouble(state[word + 3]),
+                    (int) state[word + 4]);
+        }
+    }
+
+    private void putByte(int value) {
+        bytes[bytePosition] = (byte) value;
+        bytePosition = (bytePosition + 1) % bytes.length;
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            putByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        putByte(value);
+    }
+
+    private void putLong(long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            putByte((int) (value >>> (8 * i)));
+        }
+    }
+
+    private long getVarint(int position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+            position = (position + 1) % bytes.length;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private int skipVarint(int position) {
+        while ((bytes[position] & 0x80) != 0) {
+            position = (position + 1) % bytes.length;
+        }
+        return (position + 1) % bytes.length;
+    }
+
+    private long getLong(int position) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value |= (bytes[(position + i) % bytes.length] & 0xFFL) << (8 * i);
+        }
+        return value;
+    }
+}
@@ -1,31 +1,29 @@
-import bagel.Image;
 import bagel.util.Point;
+import bagel.util.Rectangle;
 
 /**
  * Hazard that applies damage for as long as the player is on it
  */
 public class River{
     private final Point position;
-    private final Image image;
-    private final double damagePerFrame;
+    private final Sprite image;
+    private final Rectangle boundingBox;
 
     public River(Point position) {
         this.position = position;
-        this.image = new Image("res/river.png");
-        damagePerFrame = Double.parseDouble(ShadowDungeon.getGameProps().getProperty("riverDamagePerFrame"));
-    }
-
-    public void update(Player player) {
-        if (hasCollidedWith(player)) {
-            player.receiveDamage(damagePerFrame);
-        }
+        this.image = SpriteRegistry.get("res/river.png");
+        this.boundingBox = image.getBoundingBoxAt(position);
     }
 
     public void draw() {
         image.draw(position.x, position.y);
     }
 
-    public boolean hasCollidedWith(Player player) {
-        return image.getBoundingBoxAt(position).intersects(player.getCurrImage().getBoundingBoxAt(player.getPosition()));
+    public void addTo(BackgroundLayer layer) {
+        layer.add(image, position);
+    }
+
+    public Rectangle getBoundingBox() {
+        return boundingBox;
     }
 }
\ No newline at end of file
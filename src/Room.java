@@ -0,0 +1,46 @@
+/**
+ * A room of the dungeon that the player can be in and move between through doors
+ */
+public interface Room {
+    String getName();
+
+    void initEntities(RoomSpec room);
+
+    void update(InputSource input);
+
+    /**
+     * Draw the room as it is without updating anything. Rooms are drawn once per displayed frame, however many ticks
+     * ran before it.
+     */
+    void draw();
+
+    void setPlayer(Player player);
+
+    void stopCurrentUpdateCall();
+
+    /**
+     * @return the door of this room that leads to the given room
+     */
+    Door findDoorByDestination(int roomId);
+
+    /**
+     * @return every door in this room, used to resolve their destinations when the level is loaded. The array is the
+     * room's own, so callers must not modify it.
+     */
+    Door[] getDoors();
+
+    void reset();
+
+    /**
+     * @return true if the room can be shrunk to a saved-state record while the player is far away
+     */
+    default boolean canEvict() {
+        return false;
+    }
+
+    /**
+     * Called when the player enters this room through the given door, before the door is unlocked behind them
+     */
+    default void prepareEntryDoor(Door door) {
+    }
+}
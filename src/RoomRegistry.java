@@ -0,0 +1,257 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every room of the level indexed by an integer id. Rooms are only built the first time they are needed, and
+ * completed battle rooms far from the player are shrunk to a saved-state record until the player comes back.
+ */
+public class RoomRegistry {
+    public static final int PREP_ROOM_ID = 0;
+    public static final int END_ROOM_ID = 1;
+
+    /** Rooms more than this many doors away from the player may be evicted */
+    private static final int EVICT_DISTANCE = 2;
+
+    private final GameWorld world;
+    private final String[] roomNames;
+    private final RoomSpec[] roomSpecs;
+    private final int[][] neighbours;
+    private final Room[] rooms;
+    private final BattleRoomState[] savedStates;
+    private final BackgroundLayer[] backgroundLayers;
+    private final Map<String, Integer> roomIds = new HashMap<>();
+    private final int[] distances;
+    private final ArrayDeque<Integer> searchQueue = new ArrayDeque<>();
+
+    /**
+     * Index the prep room, the end room and a battle room for every room in the level that has doors of its own
+     */
+    public RoomRegistry(GameWorld world, LevelSpec level) {
+        this.world = world;
+        List<String> battleRoomNames = new ArrayList<>();
+        for (Map.Entry<String, RoomSpec> room : level.getRooms().entrySet()) {
+            if (room.getValue().getFirst("primarydoor") != null) {
+                battleRoomNames.add(room.getKey());
+            }
+        }
+        Collections.sort(battleRoomNames);
+
+        int roomCount = battleRoomNames.size() + 2;
+        roomNames = new String[roomCount];
+        roomNames[PREP_ROOM_ID] = ShadowDungeon.PREP_ROOM_NAME;
+        roomNames[END_ROOM_ID] = ShadowDungeon.END_ROOM_NAME;
+        for (int i = 0; i < battleRoomNames.size(); i++) {
+            roomNames[i + 2] = battleRoomNames.get(i);
+        }
+
+        roomSpecs = new RoomSpec[roomCount];
+        for (int id = 0; id < roomCount; id++) {
+            roomIds.put(roomNames[id], id);
+            roomSpecs[id] = level.getRoom(roomNames[id]);
+        }
+
+        // Build the door graph from the level data so rooms can be prefetched and evicted without building them
+        neighbours = new int[roomCount][];
+        for (int id = 0; id < roomCount; id++) {
+            List<Integer> destinations = new ArrayList<>();
+            for (Map.Entry<String, List<EntitySpec>> group : roomSpecs[id].getEntities().entrySet()) {
+                if (group.getKey().endsWith("door")) {
+                    for (EntitySpec door : group.getValue()) {
+                        destinations.add(resolve(roomNames[id], door.argument));
+                    }
+                }
+            }
+            neighbours[id] = destinations.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        rooms = new Room[roomCount];
+        savedStates = new BattleRoomState[roomCount];
+        backgroundLayers = new BackgroundLayer[roomCount];
+        distances = new int[roomCount];
+    }
+
+    /**
+     * @return the room with the given id, building it first if it hasn't been built or was evicted
+     */
+    public Room get(int roomId) {
+        Room room = rooms[roomId];
+        if (room == null) {
+            room = build(roomId);
+        }
+        return room;
+    }
+
+    /**
+     * Make sure a room is built before the player walks into it. The room is built right away on the calling
+     * thread. Its entities only look up sprites, so building it needs no GL context.
+     */
+    public void prefetch(int roomId) {
+        get(roomId);
+    }
+
+    private Room build(int roomId) {
+        Room room;
+        switch (roomId) {
+            case PREP_ROOM_ID:
+                room = new PrepRoom(world);
+                break;
+            case END_ROOM_ID:
+                room = new EndRoom(world);
+                break;
+            default:
+                room = new BattleRoom(world, roomNames[roomId]);
+        }
+
+        room.initEntities(roomSpecs[roomId]);
+        for (Door door : room.getDoors()) {
+            door.setToRoomId(resolve(room.getName(), door.toRoomName));
+        }
+
+        if (savedStates[roomId] != null) {
+            ((BattleRoom) room).restoreState(savedStates[roomId]);
+            savedStates[roomId] = null;
+        }
+
+        rooms[roomId] = room;
+        return room;
+    }
+
+    /**
+     * Shrink every evictable room that is more than EVICT_DISTANCE doors away from the given room
+     */
+    public void evictFarRooms(int currentRoomId) {
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        distances[currentRoomId] = 0;
+        searchQueue.add(currentRoomId);
+        while (!searchQueue.isEmpty()) {
+            int roomId = searchQueue.poll();
+            for (int neighbour : neighbours[roomId]) {
+                if (distances[neighbour] == Integer.MAX_VALUE) {
+                    distances[neighbour] = distances[roomId] + 1;
+                    searchQueue.add(neighbour);
+                }
+            }
+        }
+
+        for (int roomId = 0; roomId < rooms.length; roomId++) {
+            Room room = rooms[roomId];
+            if (room != null && distances[roomId] > EVICT_DISTANCE && room.canEvict()) {
+                savedStates[roomId] = ((BattleRoom) room).saveState();
+                rooms[roomId] = null;
+            }
+        }
+    }
+
+    /**
+     * @return the saved-state record of a completed battle room, or null if the room is unchanged from the level
+     */
+    public BattleRoomState getCompletedState(int roomId) {
+        if (savedStates[roomId] != null) {
+            return savedStates[roomId];
+        }
+        Room room = rooms[roomId];
+        if (room instanceof BattleRoom && ((BattleRoom) room).isComplete()) {
+            return ((BattleRoom) room).saveState();
+        }
+        return null;
+    }
+
+    /**
+     * Mark a battle room as completed with the given state, whether or not it has been built yet
+     */
+    public void restoreCompletedState(int roomId, BattleRoomState state) {
+        if (rooms[roomId] != null) {
+            ((BattleRoom) rooms[roomId]).restoreState(state);
+        } else {
+            savedStates[roomId] = state;
+        }
+    }
+
+    /**
+     * @return the walls and rivers of a battle room as one layer, made from its spec the first time and then kept
+     * for as long as the level, so rebuilding an evicted room never bakes it again
+     */
+    public BackgroundLayer getBackgroundLayer(int roomId) {
+        BackgroundLayer layer = backgroundLayers[roomId];
+        if (layer == null) {
+            layer = new BackgroundLayer(world);
+            for (EntitySpec wall : roomSpecs[roomId].get("wall")) {
+                new Wall(wall.position).addTo(layer);
+            }
+            for (EntitySpec river : roomSpecs[roomId].get("river")) {
+                new River(river.position).addTo(layer);
+            }
+            backgroundLayers[roomId] = layer;
+        }
+        return layer;
+    }
+
+    /**
+     * Start baking the background layer of every battle room on a worker thread, so no room has to bake or fall
+     * back to drawing its sprites one by one when the player walks in. Only worth doing when drawing to a window.
+     */
+    public void bakeBackgroundLayers() {
+        for (int roomId = END_ROOM_ID + 1; roomId < rooms.length; roomId++) {
+            getBackgroundLayer(roomId).startBaking();
+        }
+    }
+
+    RoomSpec getSpec(int roomId) {
+        return roomSpecs[roomId];
+    }
+
+    /**
+     * Restore every built room to its loaded state and forget the saved state of evicted rooms
+     */
+    public void resetAll() {
+        for (int roomId = 0; roomId < rooms.length; roomId++) {
+            if (rooms[roomId] != null) {
+                rooms[roomId].reset();
+            }
+            savedStates[roomId] = null;
+        }
+    }
+
+    private int resolve(String fromRoomName, String toRoomName) {
+        Integer toRoomId = roomIds.get(toRoomName);
+        if (toRoomId == null) {
+            throw new IllegalArgumentException(String.format("Door in room '%s' leads to unknown room '%s'",
+                    fromRoomName, toRoomName));
+        }
+        return toRoomId;
+    }
+
+    public int getId(String roomName) {
+        return roomIds.get(roomName);
+    }
+
+    public int size() {
+        return rooms.length;
+    }
+
+    /**
+     * @return the number of rooms currently held in memory as full rooms
+     */
+    public int getBuiltRoomCount() {
+        int count = 0;
+        for (Room room : rooms) {
+            if (room != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public PrepRoom getPrepRoom() {
+        return (PrepRoom) get(PREP_ROOM_ID);
+    }
+
+    public EndRoom getEndRoom() {
+        return (EndRoom) get(END_ROOM_ID);
+    }
+}
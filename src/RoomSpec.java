@@ -0,0 +1,35 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The entities of one room grouped by object type, as read from the level file
+ */
+public class RoomSpec {
+    private final Map<String, List<EntitySpec>> entities = new HashMap<>();
+
+    void add(String objectType, EntitySpec entity) {
+        entities.computeIfAbsent(objectType, type -> new ArrayList<>()).add(entity);
+    }
+
+    /**
+     * @return every entity of the given type in file order, or an empty list if there are none
+     */
+    public List<EntitySpec> get(String objectType) {
+        return entities.getOrDefault(objectType, Collections.emptyList());
+    }
+
+    Map<String, List<EntitySpec>> getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return the first entity of the given type, or null if there is none
+     */
+    public EntitySpec getFirst(String objectType) {
+        List<EntitySpec> matches = get(objectType);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+}
@@ -0,0 +1,424 @@
+import bagel.util.Point;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Binary save file of one game world. The file holds two regions of the same layout that saves take turns to write,
+ * so a crash part way through a save leaves the save before it intact. A region starts with a header, a sequence
+ * number and the player record, followed by one fixed-size slot per room holding whether it was completed and which
+ * of its tables and treasure boxes are left. The header holds a CRC32 of everything after it in the region, and
+ * loading takes the valid region with the highest sequence number.
+ * Saving encodes on the calling thread but writes through an asynchronous channel, and only rewrites the room slots
+ * that changed since the region was last written. A save made while the previous one is still being written is
+ * held back until it finishes.
+ */
+public class SaveGame {
+    public static final int MAGIC = 0x53445356; // "SDSV"
+    public static final short VERSION = 3;
+
+    private static final int REGIONS = 2;
+    // magic, version, level checksum, room count, CRC32 of the rest of the region
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int CRC_OFFSET = HEADER_BYTES - Integer.BYTES;
+    // sequence, current room, previous room, x, y, health, coins, keys, weapon level, character type
+    private static final int PLAYER_BYTES = Long.BYTES + Integer.BYTES * 2 + Double.BYTES * 4 + Integer.BYTES * 2
+            + Byte.BYTES;
+
+    private static final byte ROOM_UNCHANGED = 0;
+    private static final byte ROOM_COMPLETED = 1;
+
+    private final Path file;
+    private final long levelChecksum;
+    private final int[] tableCounts;
+    private final int[] treasureBoxCounts;
+    private final long[] slotOffsets;
+    private final int regionBytes;
+    private final ByteBuffer[] playerBuffers = new ByteBuffer[REGIONS];
+    private final ByteBuffer[][] slotBuffers;
+    private final byte[][][] written;
+    private final CRC32 crc = new CRC32();
+    private final List<Future<Integer>> pending = new ArrayList<>();
+    private AsynchronousFileChannel channel;
+    private int nextRegion = 0;
+    private int pendingRegion;
+    private long sequence = 0;
+    private boolean dirty = false;
+
+    /**
+     * @param levelChecksum checksum of the app.properties the level was loaded from, so saves of other levels are
+     *                      rejected
+     */
+    public SaveGame(String saveFile, long levelChecksum, RoomRegistry rooms) {
+        this.file = Paths.get(saveFile);
+        this.levelChecksum = levelChecksum;
+
+        int roomCount = rooms.size();
+        tableCounts = new int[roomCount];
+        treasureBoxCounts = new int[roomCount];
+        slotOffsets = new long[roomCount];
+        slotBuffers = new ByteBuffer[REGIONS][roomCount];
+        written = new byte[REGIONS][roomCount][];
+
+        int offset = HEADER_BYTES + PLAYER_BYTES;
+        for (int id = 0; id < roomCount; id++) {
+            tableCounts[id] = rooms.getSpec(id).get("table").size();
+            treasureBoxCounts[id] = rooms.getSpec(id).get("treasurebox").size();
+            slotOffsets[id] = offset;
+            offset += slotBytes(id);
+        }
+        regionBytes = offset;
+
+        for (int region = 0; region < REGIONS; region++) {
+            playerBuffers[region] = ByteBuffer.allocate(HEADER_BYTES + PLAYER_BYTES);
+            for (int id = 0; id < roomCount; id++) {
+                slotBuffers[region][id] = ByteBuffer.allocate(slotBytes(id));
+            }
+        }
+    }
+
+    private int slotBytes(int roomId) {
+        return Byte.BYTES + bitBytes(tableCounts[roomId]) + bitBytes(treasureBoxCounts[roomId]);
+    }
+
+    private static int bitBytes(int bits) {
+        return (bits + 7) / 8;
+    }
+
+    /**
+     * Encode the world's state and start writing it without waiting for the disk. If the previous save is still being
+     * written, this one is written by a later call to update once it has finished, unless a newer save replaces it.
+     */
+    public void save(GameWorld world) {
+        // The region being written is always the other one, so its buffers are free to encode into
+        encodePlayer(world, nextRegion);
+        RoomRegistry rooms = world.getRooms();
+        for (int id = 0; id < tableCounts.length; id++) {
+            ByteBuffer slot = slotBuffers[nextRegion][id];
+            encodeRoom(id, rooms.getCompletedState(id), slot);
+            crc.update(slot.array());
+        }
+        playerBuffers[nextRegion].putInt(CRC_OFFSET, (int) crc.getValue());
+        dirty = true;
+
+        update();
+    }
+
+    /**
+     * Start writing a save that was held back once the writes before it have finished. Called every tick.
+     */
+    public void update() {
+        if (!dirty || !finishPendingWrites()) {
+            return;
+        }
+        dirty = false;
+
+        int region = nextRegion;
+        long regionStart = (long) region * regionBytes;
+        try {
+            if (channel == null) {
+                channel = AsynchronousFileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                // Cut off whatever an older, longer file left past the regions, without touching the regions
+                channel.truncate((long) REGIONS * regionBytes);
+            }
+
+            pendingRegion = region;
+            pending.add(channel.write(playerBuffers[region], regionStart));
+            for (int id = 0; id < tableCounts.length; id++) {
+                ByteBuffer slot = slotBuffers[region][id];
+                if (written[region][id] == null || !Arrays.equals(written[region][id], slot.array())) {
+                    written[region][id] = slot.array().clone();
+                    pending.add(channel.write(slot, regionStart + slotOffsets[id]));
+                }
+            }
+        } catch (IOException ex) {
+            // Losing a save should never take the game down with it
+            ex.printStackTrace();
+            Arrays.fill(written[region], null);
+        }
+        sequence++;
+        nextRegion = (region + 1) % REGIONS;
+    }
+
+    /**
+     * @return true if every earlier write has finished; after a failed write every slot of its region is rewritten
+     *         next time
+     */
+    private boolean finishPendingWrites() {
+        for (Future<Integer> write : pending) {
+            if (!write.isDone()) {
+                return false;
+            }
+        }
+
+        for (Future<Integer> write : pending) {
+            try {
+                write.get();
+            } catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+                Arrays.fill(written[pendingRegion], null);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        pending.clear();
+        return true;
+    }
+
+    private void encodePlayer(GameWorld world, int region) {
+        Player player = world.getPlayer();
+        ByteBuffer buffer = playerBuffers[region];
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putLong(levelChecksum);
+        buffer.putInt(tableCounts.length);
+        buffer.putInt(0); // filled in once the room slots are encoded
+
+        buffer.putLong(sequence + 1);
+        buffer.putInt(world.getCurrentRoomId());
+        buffer.putInt(world.getPreviousRoomId());
+        buffer.putDouble(player.getPosition().x);
+        buffer.putDouble(player.getPosition().y);
+        buffer.putDouble(player.getHealth());
+        buffer.putDouble(player.getCoins());
+        buffer.putInt(player.getKeys());
+        buffer.putInt(player.getWeaponLevel());
+        buffer.put((byte) player.getCharacterType().ordinal());
+        buffer.flip();
+
+        crc.reset();
+        crc.update(buffer.array(), HEADER_BYTES, PLAYER_BYTES);
+    }
+
+    private void encodeRoom(int roomId, BattleRoomState state, ByteBuffer slot) {
+        slot.clear();
+        Arrays.fill(slot.array(), (byte) 0);
+        if (state == null) {
+            slot.put(ROOM_UNCHANGED);
+        } else {
+            slot.put(ROOM_COMPLETED);
+            putBits(slot, state.tablesActive);
+            putBits(slot, state.treasureBoxesActive);
+        }
+        slot.position(0);
+        slot.limit(slot.capacity());
+    }
+
+    private static void putBits(ByteBuffer buffer, boolean[] bits) {
+        int start = buffer.position();
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i]) {
+                buffer.put(start + i / 8, (byte) (buffer.get(start + i / 8) | (1 << (i % 8))));
+            }
+        }
+        buffer.position(start + bitBytes(bits.length));
+    }
+
+    private static boolean[] getBits(ByteBuffer buffer, int count) {
+        boolean[] bits = new boolean[count];
+        int start = buffer.position();
+        for (int i = 0; i < count; i++) {
+            bits[i] = (buffer.get(start + i / 8) & (1 << (i % 8))) != 0;
+        }
+        buffer.position(start + bitBytes(count));
+        return bits;
+    }
+
+    /**
+     * Restore the world from the newest intact save in the file, and remember what both regions hold so the next
+     * saves only rewrite changes
+     * @return false if there is no save file
+     * @throws IOException if the file can't be read, isn't a save file, was made for another level or neither region
+     *                     is intact; the world is left untouched
+     */
+    public boolean load(GameWorld world) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        byte[] bytes = Files.readAllBytes(file);
+        SavedRegion newest = null;
+        IOException failure = null;
+        for (int region = 0; region < REGIONS; region++) {
+            try {
+                SavedRegion saved = readRegion(bytes, region);
+                if (newest == null || saved.sequence > newest.sequence) {
+                    newest = saved;
+                }
+            } catch (IOException ex) {
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+        if (newest == null) {
+            throw failure;
+        }
+
+        world.resetGameState();
+        RoomRegistry rooms = world.getRooms();
+        for (int id = 0; id < tableCounts.length; id++) {
+            if (newest.states[id] != null) {
+                rooms.restoreCompletedState(id, newest.states[id]);
+            }
+        }
+        world.getPlayer().restoreState(newest.position, newest.health, newest.coins, newest.keys,
+                newest.weaponLevel, CharacterType.values()[newest.characterType]);
+        world.enterSavedRoom(newest.roomId, newest.fromRoomId);
+
+        sequence = newest.sequence;
+        nextRegion = (newest.region + 1) % REGIONS;
+        return true;
+    }
+
+    /**
+     * Check one region of the file and read it without touching the world. Its slots are remembered as written if it
+     * is intact, and forgotten otherwise so the next save into it rewrites all of them.
+     */
+    private SavedRegion readRegion(byte[] bytes, int region) throws IOException {
+        Arrays.fill(written[region], null);
+        int regionStart = region * regionBytes;
+        if (bytes.length < regionStart + regionBytes) {
+            throw new IOException(String.format("%s is truncated", file));
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, regionStart, regionBytes).slice();
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(String.format("%s is not a save file", file));
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported save version %d", version));
+        }
+        if (buffer.getLong() != levelChecksum || buffer.getInt() != tableCounts.length) {
+            throw new IOException(String.format("%s was saved for a different level", file));
+        }
+        int savedCrc = buffer.getInt();
+
+        crc.reset();
+        crc.update(bytes, regionStart + HEADER_BYTES, regionBytes - HEADER_BYTES);
+        if ((int) crc.getValue() != savedCrc) {
+            throw new IOException(String.format("%s is corrupt or was only partly written", file));
+        }
+
+        SavedRegion saved = new SavedRegion();
+        saved.region = region;
+        saved.sequence = buffer.getLong();
+        saved.roomId = checkRoomId(buffer.getInt());
+        saved.fromRoomId = checkRoomId(buffer.getInt());
+        saved.position = new Point(checkFinite(buffer.getDouble()), checkFinite(buffer.getDouble()));
+        saved.health = checkNonNegative(checkFinite(buffer.getDouble()));
+        saved.coins = checkNonNegative(checkFinite(buffer.getDouble()));
+        saved.keys = (int) checkNonNegative(buffer.getInt());
+        saved.weaponLevel = (int) checkNonNegative(buffer.getInt());
+        saved.characterType = buffer.get();
+        if (saved.weaponLevel > Player.MAX_WEAPON_LEVEL) {
+            throw new IOException(String.format("Invalid weapon level %d in %s", saved.weaponLevel, file));
+        }
+        if (saved.characterType < 0 || saved.characterType >= CharacterType.values().length) {
+            throw new IOException(String.format("Invalid character type %d in %s", saved.characterType, file));
+        }
+
+        saved.states = new BattleRoomState[tableCounts.length];
+        for (int id = 0; id < tableCounts.length; id++) {
+            int start = buffer.position();
+            byte flag = buffer.get();
+            if (flag == ROOM_COMPLETED && id > RoomRegistry.END_ROOM_ID) {
+                boolean[] tablesActive = getBits(buffer, tableCounts[id]);
+                boolean[] treasureBoxesActive = getBits(buffer, treasureBoxCounts[id]);
+                saved.states[id] = new BattleRoomState(tablesActive, treasureBoxesActive);
+            } else if (flag != ROOM_UNCHANGED) {
+                throw new IOException(String.format("Invalid state %d for room %d in %s", flag, id, file));
+            }
+            buffer.position(start + slotBytes(id));
+        }
+
+        for (int id = 0; id < tableCounts.length; id++) {
+            int start = regionStart + (int) slotOffsets[id];
+            written[region][id] = Arrays.copyOfRange(bytes, start, start + slotBytes(id));
+        }
+        return saved;
+    }
+
+    private int checkRoomId(int roomId) throws IOException {
+        if (roomId < 0 || roomId >= tableCounts.length) {
+            throw new IOException(String.format("Invalid room %d in %s", roomId, file));
+        }
+        return roomId;
+    }
+
+    private double checkFinite(double value) throws IOException {
+        if (!Double.isFinite(value)) {
+            throw new IOException(String.format("Invalid number %f in %s", value, file));
+        }
+        return value;
+    }
+
+    private double checkNonNegative(double value) throws IOException {
+        if (value < 0) {
+            throw new IOException(String.format("Invalid negative value %f in %s", value, file));
+        }
+        return value;
+    }
+
+    /**
+     * Write any save still held back, wait for everything to reach the disk and close the file
+     */
+    public void close() {
+        waitForPendingWrites();
+        if (dirty) {
+            update();
+            waitForPendingWrites();
+        }
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void waitForPendingWrites() {
+        for (Future<Integer> write : pending) {
+            try {
+                write.get();
+            } catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * The contents of one intact region of the file
+     */
+    private static class SavedRegion {
+        int region;
+        long sequence;
+        int roomId;
+        int fromRoomId;
+        Point position;
+        double health;
+        double coins;
+        int keys;
+        int weaponLevel;
+        int characterType;
+        BattleRoomState[] states;
+    }
+}
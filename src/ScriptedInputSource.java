@@ -0,0 +1,78 @@
+import bagel.Keys;
+import bagel.MouseButtons;
+
+/**
+ * Input source whose state is set by code, used to drive the game without a window
+ */
+public class ScriptedInputSource implements InputSource {
+    private final boolean[] keysDown = new boolean[Keys.values().length];
+    private final boolean[] keysPressed = new boolean[Keys.values().length];
+    private final boolean[] buttonsDown = new boolean[MouseButtons.values().length];
+    private double mouseX;
+    private double mouseY;
+
+    /**
+     * Press a key this frame; it stays down until released
+     */
+    public void press(Keys key) {
+        if (!keysDown[key.ordinal()]) {
+            keysPressed[key.ordinal()] = true;
+        }
+        keysDown[key.ordinal()] = true;
+    }
+
+    public void release(Keys key) {
+        keysDown[key.ordinal()] = false;
+    }
+
+    public void setDown(Keys key, boolean down) {
+        if (down) {
+            press(key);
+        } else {
+            release(key);
+        }
+    }
+
+    public void setDown(MouseButtons button, boolean down) {
+        buttonsDown[button.ordinal()] = down;
+    }
+
+    public void setMouse(double x, double y) {
+        mouseX = x;
+        mouseY = y;
+    }
+
+    /**
+     * Clear the one-frame "was pressed" state, call after each simulated frame
+     */
+    public void endFrame() {
+        for (int i = 0; i < keysPressed.length; i++) {
+            keysPressed[i] = false;
+        }
+    }
+
+    @Override
+    public boolean isDown(Keys key) {
+        return keysDown[key.ordinal()];
+    }
+
+    @Override
+    public boolean wasPressed(Keys key) {
+        return keysPressed[key.ordinal()];
+    }
+
+    @Override
+    public boolean isDown(MouseButtons button) {
+        return buttonsDown[button.ordinal()];
+    }
+
+    @Override
+    public double getMouseX() {
+        return mouseX;
+    }
+
+    @Override
+    public double getMouseY() {
+        return mouseY;
+    }
+}
@@ -1,70 +1,71 @@
 import bagel.*;
-import bagel.util.Point;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Properties;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Main game class that manages initialising the rooms and moving the player between rooms
+ * Window for a single GameWorld. The world is simulated at a fixed rate on a thread of its own, which records each
+ * tick's draw commands into a triple-buffered FrameExchange, while the window thread only hands over input and draws
+ * the latest frame. Neither thread ever waits for the other.
  */
 public class ShadowDungeon extends AbstractGame {
-    public static Properties gameProps;
-    public static Properties messageProps;
-    public static double screenWidth;
-    public static double screenHeight;
-
-    private static String currRoomName;
-    private static PrepRoom prepRoom;
-    private static BattleRoom battleRoomA;
-    private static BattleRoom battleRoomB;
-    private static EndRoom endRoom;
-    private static Player player;
-    private static Store store;
-    private final Image background;
+    private final GameWorld world;
+    private final BagelInputSource inputSource = new BagelInputSource();
+
+    public static final String GAME_PROPS_FILE = "res/app.properties";
+    public static final String MESSAGE_PROPS_FILE = "res/message.properties";
+    public static final String LEVEL_FILE = "res/level.bin";
+    public static final String SAVE_FILE = "save.bin";
+
+    private InputRecorder recorder;
+    private InputReplayer replayer;
+    private final RenderQueue renderQueue;
+    private final FrameExchange frames = new FrameExchange();
+    private final BagelRenderer windowRenderer = new BagelRenderer();
+    private final InputExchange inputs = new InputExchange();
+    private final InputFrame tickInput = new InputFrame();
+    private RewindBuffer rewind;
+    private Thread simulationThread;
+    private volatile boolean running;
+    private volatile boolean simulationFinished = false;
+    private volatile boolean rewinding = false;
+
+    /** The simulation rate. Speeds and damage given "per frame" in the properties are per tick of this clock. */
+    public static final int TICKS_PER_SECOND = 60;
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    private static final int MAX_CATCH_UP_TICKS = 5;
 
     public static final String PREP_ROOM_NAME = "prep";
-    public static final String BATTLE_ROOM_A_NAME = "A";
-    public static final String BATTLE_ROOM_B_NAME = "B";
     public static final String END_ROOM_NAME = "end";
 
-    public ShadowDungeon(Properties gameProps, Properties messageProps) {
-        super(Integer.parseInt(gameProps.getProperty("window.width")),
-                Integer.parseInt(gameProps.getProperty("window.height")),
-                "Shadow Dungeon");
-
-        ShadowDungeon.gameProps = gameProps;
-        ShadowDungeon.messageProps = messageProps;
-        screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
-        screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
-        this.background = new Image("res/background.png");
-        store = new Store();
-
-        resetGameState(gameProps);
+    public ShadowDungeon(Properties gameProps, Properties messageProps, GameConfig config, LevelSpec level) {
+        super(config.windowWidth, config.windowHeight, "Shadow Dungeon");
+        renderQueue = new RenderQueue(frames, config.windowWidth, config.windowHeight);
+        world = new GameWorld(gameProps, messageProps, config, level, renderQueue);
+        world.makeCurrent();
+        world.getRooms().bakeBackgroundLayers();
     }
 
-    public static void resetGameState(Properties gameProps) {
-        prepRoom = new PrepRoom();
-        battleRoomA = new BattleRoom(BATTLE_ROOM_A_NAME, BATTLE_ROOM_B_NAME);
-        battleRoomB = new BattleRoom(BATTLE_ROOM_B_NAME, END_ROOM_NAME);
-        endRoom = new EndRoom();
-
-        prepRoom.initEntities(gameProps);
-        battleRoomA.initEntities(gameProps);
-        battleRoomB.initEntities(gameProps);
-        endRoom.initEntities(gameProps);
-
-        currRoomName = PREP_ROOM_NAME;
-
-        ShadowDungeon.player = new Player(IOUtils.parseCoords(gameProps.getProperty("player.start")));
-        prepRoom.setPlayer(player);
-
-        // Hide store on reset
-        if (store != null) {
-            store.hide();
+    /**
+     * Read the level from the compiled LEVEL_FILE if it is up to date with app.properties, otherwise parse the properties
+     */
+    public static LevelSpec readLevel(Properties gameProps) {
+        if (Files.exists(Paths.get(LEVEL_FILE))) {
+            try {
+                return LevelSpec.load(LEVEL_FILE, IOUtils.checksum(GAME_PROPS_FILE));
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
         }
+        return LevelSpec.parse(gameProps);
     }
 
     /**
-     * Render the relevant screen based on the keyboard input given by the user and the status of the gameplay.
+     * Hand the input to the simulation thread and draw the latest tick it has published, interpolated by how long ago
+     * that tick finished.
      * @param input The current mouse/keyboard input.
      */
     @Override
@@ -73,154 +74,172 @@ public class ShadowDungeon extends AbstractGame {
             Window.close();
         }
 
-        // Toggle store with Space key
-        if (input.wasPressed(Keys.SPACE)) {
-            store.toggleVisibility();
+        // Toggle the frame profiler overlay with F3
+        if (input.wasPressed(Keys.F3)) {
+            FrameProfiler.toggle();
         }
 
-        background.draw((double) Window.getWidth() / 2, (double) Window.getHeight() / 2);
-
-        // If store is visible, update store and pause game
-        if (store.isVisible()) {
-            // Still render the current room in background
-            switch (currRoomName) {
-                case PREP_ROOM_NAME:
-                    prepRoom.update(input);
-                    break;
-                case BATTLE_ROOM_A_NAME:
-                    battleRoomA.update(input);
-                    break;
-                case BATTLE_ROOM_B_NAME:
-                    battleRoomB.update(input);
-                    break;
-                default:
-                    endRoom.update(input);
-            }
+        // Hold Backspace to play the game backwards
+        rewinding = input.isDown(Keys.BACKSPACE);
 
-            // Draw store on top
-            store.update(input, player);
-            store.draw();
+        // The replay has run out of frames, or the simulation has stopped
+        if (simulationFinished) {
+            Window.close();
             return;
         }
 
-        // Normal game update
-        switch (currRoomName) {
-            case PREP_ROOM_NAME:
-                prepRoom.update(input);
-                return;
-            case BATTLE_ROOM_A_NAME:
-                battleRoomA.update(input);
-                return;
-            case BATTLE_ROOM_B_NAME:
-                battleRoomB.update(input);
-                return;
-            default:
-                endRoom.update(input);
-        }
-    }
-
-    public static void changeRoom(String roomName) {
-        Door nextDoor;
-        switch (roomName) {
-            case PREP_ROOM_NAME:
-                nextDoor = prepRoom.findDoorByDestination();
+        inputSource.setInput(input);
+        inputs.publish(inputSource);
+        // Textures can only be uploaded on the window thread
+        AssetManager.update();
 
-                if (currRoomName.equals(BATTLE_ROOM_A_NAME)) {
-                    battleRoomA.stopCurrentUpdateCall();
-                }
-                currRoomName = PREP_ROOM_NAME;
-
-                nextDoor.unlock(true);
-                player.move(nextDoor.getPosition().x, nextDoor.getPosition().y);
-                prepRoom.setPlayer(player);
+        RenderFrame frame = frames.getFrontFrame();
+        double alpha = (System.nanoTime() - frame.getTickTime()) / (double) TICK_NANOS;
+        frame.draw(windowRenderer, Math.min(Math.max(alpha, 0), 1));
+    }
 
-                return;
-            case BATTLE_ROOM_A_NAME:
-                nextDoor = battleRoomA.findDoorByDestination(currRoomName);
+    /**
+     * Start simulating the world on its own thread
+     */
+    public void startSimulation() {
+        running = true;
+        simulationThread = new Thread(this::runSimulation, "simulation");
+        simulationThread.start();
+    }
 
-                if (currRoomName.equals(BATTLE_ROOM_B_NAME)) {
-                    battleRoomB.stopCurrentUpdateCall();
-                } else if (currRoomName.equals(PREP_ROOM_NAME)) {
-                    prepRoom.stopCurrentUpdateCall();
-                }
-                currRoomName = BATTLE_ROOM_A_NAME;
+    /**
+     * Stop the simulation thread and wait for its current tick to finish
+     */
+    public void stopSimulation() {
+        running = false;
+        LockSupport.unpark(simulationThread);
+        try {
+            simulationThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-                if (!battleRoomA.isComplete()) {
-                    nextDoor.setShouldLockAgain();
+    private void runSimulation() {
+        world.makeCurrent();
+        try {
+            long nextTick = System.nanoTime();
+            while (running) {
+                long now = System.nanoTime();
+                if (now < nextTick) {
+                    LockSupport.parkNanos(nextTick - now);
+                    continue;
                 }
-
-                nextDoor.unlock(true);
-                player.move(nextDoor.getPosition().x, nextDoor.getPosition().y);
-                battleRoomA.setPlayer(player);
-
-                return;
-            case BATTLE_ROOM_B_NAME:
-                nextDoor = battleRoomB.findDoorByDestination(currRoomName);
-
-                if (currRoomName.equals(BATTLE_ROOM_A_NAME)) {
-                    battleRoomA.stopCurrentUpdateCall();
-                } else if (currRoomName.equals(END_ROOM_NAME)) {
-                    endRoom.stopCurrentUpdateCall();
+                if (!runTick()) {
+                    return;
                 }
-                currRoomName = BATTLE_ROOM_B_NAME;
-
-                if (!battleRoomB.isComplete()) {
-                    nextDoor.setShouldLockAgain();
+                nextTick += TICK_NANOS;
+                // Too far behind to catch up, e.g. after a stall, so let the game slow down instead of running a burst
+                if (now - nextTick > MAX_CATCH_UP_TICKS * TICK_NANOS) {
+                    nextTick = now;
                 }
-
-                nextDoor.unlock(true);
-                player.move(nextDoor.getPosition().x, nextDoor.getPosition().y);
-                battleRoomB.setPlayer(player);
-
-                return;
-            default:
-                nextDoor = endRoom.findDoorByDestination();
-
-                if (currRoomName.equals(BATTLE_ROOM_B_NAME)) {
-                    battleRoomB.stopCurrentUpdateCall();
-                }
-                currRoomName = END_ROOM_NAME;
-
-                nextDoor.unlock(true);
-                player.move(nextDoor.getPosition().x, nextDoor.getPosition().y);
-                endRoom.setPlayer(player);
+            }
+        } finally {
+            simulationFinished = true;
         }
     }
 
-    public static void changeToGameOverRoom() {
-        switch (currRoomName) {
-            case PREP_ROOM_NAME:
-                prepRoom.stopCurrentUpdateCall();
-                break;
-            case BATTLE_ROOM_A_NAME:
-                battleRoomA.stopCurrentUpdateCall();
-                break;
-            case BATTLE_ROOM_B_NAME:
-                battleRoomB.stopCurrentUpdateCall();
-                break;
-            default:
+    /**
+     * Run one simulation tick and publish what it draws
+     * @return false if a replay has run out of frames
+     */
+    private boolean runTick() {
+        if (replayer != null && !replayer.hasNextFrame()) {
+            return false;
         }
 
-        endRoom.isGameOver();
-        currRoomName = END_ROOM_NAME;
-
-        Point startPos = IOUtils.parseCoords(ShadowDungeon.getGameProps().getProperty("player.start"));
-        player.move(startPos.x, startPos.y);
-        endRoom.setPlayer(player);
+        renderQueue.beginTick();
+        FrameProfiler.beginFrame();
+        inputs.take(tickInput);
+        // Read once, since the window thread may change it mid-tick
+        boolean rewindTick = rewind != null && rewinding;
+        if (rewindTick) {
+            // Stay on the oldest tick once there is nothing left to rewind
+            rewind.stepBack(world);
+        } else if (replayer != null) {
+            world.tick(replayer.nextFrame());
+        } else if (recorder != null) {
+            world.tick(recorder.record(tickInput));
+        } else {
+            world.tick(tickInput);
+        }
+        if (rewind != null && !rewindTick) {
+            rewind.capture(world);
+        }
+        world.draw();
+        FrameProfiler.endFrame();
+        renderQueue.endTick();
+        return true;
     }
 
+    /*
+     * Accessors for code that has no world of its own, such as Sprite and the enemies built from spawn points.
+     * They resolve to the world being simulated on the calling thread.
+     */
+
     public static Properties getGameProps() {
-        return gameProps;
+        return GameWorld.current().getGameProps();
     }
 
     public static Properties getMessageProps() {
-        return messageProps;
+        return GameWorld.current().getMessageProps();
+    }
+
+    public static GameConfig getConfig() {
+        return GameWorld.current().getConfig();
+    }
+
+    public static Renderer getRenderer() {
+        return GameWorld.current().getRenderer();
     }
 
-    public static void main(String[] args) {
-        Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
-        Properties messageProps = IOUtils.readPropertiesFile("res/message.properties");
-        ShadowDungeon game = new ShadowDungeon(gameProps, messageProps);
+    /**
+     * @param args optionally "--record file" to log every frame's input, or "--replay file" to play a log back
+     */
+    public static void main(String[] args) throws IOException {
+        // Start reading the assets first so the disk work overlaps loading the level and opening the window
+        AssetManager.start();
+        Properties gameProps = IOUtils.readPropertiesFile(GAME_PROPS_FILE);
+        Properties messageProps = IOUtils.readPropertiesFile(MESSAGE_PROPS_FILE);
+        GameConfig config = new GameConfig(gameProps, messageProps);
+        ShadowDungeon game = new ShadowDungeon(gameProps, messageProps, config, readLevel(gameProps));
+
+        if (args.length == 2 && args[0].equals("--record")) {
+            game.recorder = new InputRecorder(args[1], IOUtils.checksum(GAME_PROPS_FILE));
+        } else if (args.length == 2 && args[0].equals("--replay")) {
+            game.replayer = new InputReplayer(args[1], IOUtils.checksum(GAME_PROPS_FILE));
+        }
+
+        // Recordings and replays must start from a fresh game, so only normal play saves and resumes
+        SaveGame saveGame = null;
+        if (game.recorder == null && game.replayer == null) {
+            saveGame = new SaveGame(SAVE_FILE, IOUtils.checksum(GAME_PROPS_FILE), game.world.getRooms());
+            try {
+                saveGame.load(game.world);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                game.world.resetGameState();
+            }
+            game.world.setAutosave(saveGame);
+
+            // Rewinding would make replays diverge from their recordings, so it is also only for normal play
+            game.rewind = new RewindBuffer();
+        }
+
+        game.startSimulation();
         game.run();
+        game.stopSimulation();
+
+        if (game.recorder != null) {
+            game.recorder.close();
+        }
+        if (saveGame != null) {
+            saveGame.close();
+        }
     }
 }
\ No newline at end of file
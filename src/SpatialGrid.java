@@ -0,0 +1,116 @@
+import bagel.util.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid spatial hash over the window used as a collision broadphase.
+ * Objects are stored by integer id (their index in the owning room's list) in every cell their bounds overlap.
+ */
+public class SpatialGrid {
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[][] cells;
+    private final int[] cellCounts;
+
+    // Query results, sorted by id so callers see objects in the same order as their lists
+    private int[] results = new int[16];
+    private int[] stamps = new int[16];
+    private int stamp = 0;
+
+    public SpatialGrid(double width, double height, double cellSize) {
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cells = new int[cols * rows][];
+        this.cellCounts = new int[cols * rows];
+    }
+
+    public void clear() {
+        Arrays.fill(cellCounts, 0);
+    }
+
+    public void insert(int id, Rectangle bounds) {
+        insert(id, bounds.left(), bounds.top(), bounds.right(), bounds.bottom());
+    }
+
+    public void insert(int id, double left, double top, double right, double bottom) {
+        if (id >= stamps.length) {
+            stamps = Arrays.copyOf(stamps, Math.max(id + 1, stamps.length * 2));
+        }
+
+        int minCol = toCol(left);
+        int maxCol = toCol(right);
+        int minRow = toRow(top);
+        int maxRow = toRow(bottom);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = row * cols + col;
+                if (cells[cell] == null) {
+                    cells[cell] = new int[INITIAL_CELL_CAPACITY];
+                } else if (cellCounts[cell] == cells[cell].length) {
+                    cells[cell] = Arrays.copyOf(cells[cell], cells[cell].length * 2);
+                }
+                cells[cell][cellCounts[cell]++] = id;
+            }
+        }
+    }
+
+    public int query(Rectangle bounds) {
+        return query(bounds.left(), bounds.top(), bounds.right(), bounds.bottom());
+    }
+
+    /**
+     * Find every object whose cells overlap the given bounds. The ids are read back with getResult.
+     * @return the number of candidate objects
+     */
+    public int query(double left, double top, double right, double bottom) {
+        stamp++;
+        int count = 0;
+
+        int minCol = toCol(left);
+        int maxCol = toCol(right);
+        int minRow = toRow(top);
+        int maxRow = toRow(bottom);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = row * cols + col;
+                int[] ids = cells[cell];
+                for (int i = 0; i < cellCounts[cell]; i++) {
+                    int id = ids[i];
+                    if (stamps[id] == stamp) {
+                        continue;
+                    }
+                    stamps[id] = stamp;
+
+                    if (count == results.length) {
+                        results = Arrays.copyOf(results, results.length * 2);
+                    }
+
+                    // Insertion sort keeps the (usually tiny) result list in id order
+                    int j = count++;
+                    while (j > 0 && results[j - 1] > id) {
+                        results[j] = results[j - 1];
+                        j--;
+                    }
+                    results[j] = id;
+                }
+            }
+        }
+        return count;
+    }
+
+    public int getResult(int index) {
+        return results[index];
+    }
+
+    private int toCol(double x) {
+        return Math.min(cols - 1, Math.max(0, (int) Math.floor(x / cellSize)));
+    }
+
+    private int toRow(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor(y / cellSize)));
+    }
+}
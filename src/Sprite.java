@@ -0,0 +1,103 @@
+import bagel.Image;
+import bagel.util.Point;
+import bagel.util.Rectangle;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Texture handle shared by entities. The size is read from the PNG header so collision works without a window;
+ * the bagel Image itself is only loaded the first time the sprite is drawn by a BagelRenderer, from the PNG or from
+ * pixels the AssetManager already decoded.
+ */
+public class Sprite {
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final AtomicInteger nextTextureId = new AtomicInteger(1);
+
+    private final String imageFile;
+    private final String textureFile;
+    private final double width;
+    private final double height;
+    private final int textureId = nextTextureId.getAndIncrement();
+    private Image image;
+
+    public Sprite(String imageFile) {
+        this.imageFile = imageFile;
+        this.textureFile = imageFile;
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(imageFile))) {
+            // The IHDR chunk always comes first: signature, chunk length, "IHDR", width, height
+            if (in.readLong() != PNG_SIGNATURE) {
+                throw new IOException(String.format("%s is not a PNG file", imageFile));
+            }
+            in.readInt();
+            in.readInt();
+            this.width = in.readInt();
+            this.height = in.readInt();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(String.format("Cannot read image '%s'", imageFile), ex);
+        }
+    }
+
+    /**
+     * Create a sprite for an image that has already been decoded
+     * @param textureFile the file holding the decoded pixels, which the texture is created from instead of imageFile
+     */
+    public Sprite(String imageFile, double width, double height, String textureFile) {
+        this.imageFile = imageFile;
+        this.textureFile = textureFile;
+        this.width = width;
+        this.height = height;
+    }
+
+    public void draw(double x, double y) {
+        draw(x, y, RenderLayer.OBJECTS);
+    }
+
+    public void draw(double x, double y, RenderLayer layer) {
+        ShadowDungeon.getRenderer().drawImage(this, x, y, layer);
+    }
+
+    /**
+     * Draw the sprite for an entity that moved from one position to the other during this tick
+     */
+    public void drawMoving(double fromX, double fromY, double x, double y, RenderLayer layer) {
+        ShadowDungeon.getRenderer().drawMovingImage(this, fromX, fromY, x, y, layer);
+    }
+
+    public Rectangle getBoundingBoxAt(Point position) {
+        return new Rectangle(position.x - width / 2, position.y - height / 2, width, height);
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public String getImageFile() {
+        return imageFile;
+    }
+
+    Image getImage() {
+        if (image == null) {
+            image = new Image(textureFile);
+        }
+        return image;
+    }
+
+    /**
+     * @return an id unique to this sprite, used to group draws of the same texture
+     */
+    int getTextureId() {
+        return textureId;
+    }
+
+    boolean isImageLoaded() {
+        return image != null;
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry that loads each texture once and hands out the shared Sprite to every entity that draws it.
+ * Headless worlds can be simulated on several threads at once, so access is locked.
+ */
+public class SpriteRegistry {
+    private static final int BYTES_PER_PIXEL = 4; // textures are uploaded as RGBA
+
+    private static final Map<String, Sprite> SPRITES = new HashMap<>();
+    private static long totalBytes = 0;
+
+    public static synchronized Sprite get(String imageFile) {
+        Sprite sprite = SPRITES.get(imageFile);
+        if (sprite == null) {
+            sprite = new Sprite(imageFile);
+            SPRITES.put(imageFile, sprite);
+            totalBytes += (long) sprite.getWidth() * (long) sprite.getHeight() * BYTES_PER_PIXEL;
+        }
+        return sprite;
+    }
+
+    /**
+     * Add a sprite created elsewhere, e.g. by the AssetManager's workers. A sprite that is already registered wins.
+     * @return the sprite now registered for the file
+     */
+    public static synchronized Sprite register(Sprite sprite) {
+        Sprite existing = SPRITES.get(sprite.getImageFile());
+        if (existing != null) {
+            return existing;
+        }
+        SPRITES.put(sprite.getImageFile(), sprite);
+        totalBytes += (long) sprite.getWidth() * (long) sprite.getHeight() * BYTES_PER_PIXEL;
+        return sprite;
+    }
+
+    /**
+     * @return the number of distinct textures that have been loaded
+     */
+    public static synchronized int getTextureCount() {
+        return SPRITES.size();
+    }
+
+    /**
+     * @return the estimated texture memory of all loaded images in bytes
+     */
+    public static synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
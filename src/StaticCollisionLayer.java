@@ -0,0 +1,200 @@
+import bagel.util.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Per-room collision layer for geometry that never moves: walls and locked doors block movement and rivers hurt.
+ * The boxes are captured once when the room is built and looked up through a spatial grid.
+ */
+public class StaticCollisionLayer {
+    /** Returned by the sweep tests when the moving box hits nothing */
+    public static final double NO_HIT = Double.POSITIVE_INFINITY;
+
+    private static final double CELL_SIZE = 64;
+
+    private final SpatialGrid solidGrid;
+    private final SpatialGrid hazardGrid;
+    private double[] solidBoxes = new double[16];
+    private double[] hazardBoxes = new double[16];
+    private int solidCount = 0;
+    private int hazardCount = 0;
+    private final ArrayList<Door> doors = new ArrayList<>();
+
+    public StaticCollisionLayer(double width, double height) {
+        solidGrid = new SpatialGrid(width, height, CELL_SIZE);
+        hazardGrid = new SpatialGrid(width, height, CELL_SIZE);
+    }
+
+    public void addSolid(Rectangle box) {
+        solidBoxes = store(solidBoxes, solidCount, box);
+        solidGrid.insert(solidCount++, box);
+    }
+
+    public void addHazard(Rectangle box) {
+        hazardBoxes = store(hazardBoxes, hazardCount, box);
+        hazardGrid.insert(hazardCount++, box);
+    }
+
+    /**
+     * Doors are solid only while they are locked, so their lock state is read at query time
+     */
+    public void addDoor(Door door) {
+        doors.add(door);
+    }
+
+    public void clear() {
+        solidGrid.clear();
+        hazardGrid.clear();
+        solidCount = 0;
+        hazardCount = 0;
+        doors.clear();
+    }
+
+    /**
+     * @return true if the box overlaps a wall
+     */
+    public boolean hitsSolid(Rectangle box) {
+        return hitsSolid(box.left(), box.top(), box.right(), box.bottom());
+    }
+
+    public boolean hitsSolid(double left, double top, double right, double bottom) {
+        int candidates = solidGrid.query(left, top, right, bottom);
+        for (int i = 0; i < candidates; i++) {
+            if (overlaps(solidBoxes, solidGrid.getResult(i), left, top, right, bottom)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the box overlaps a wall or a locked door, which stops projectiles
+     */
+    public boolean isBlocked(Rectangle box) {
+        return isBlocked(box.left(), box.top(), box.right(), box.bottom());
+    }
+
+    public boolean isBlocked(double left, double top, double right, double bottom) {
+        if (hitsSolid(left, top, right, bottom)) {
+            return true;
+        }
+
+        for (int i = 0; i < doors.size(); i++) {
+            Door door = doors.get(i);
+            if (!door.isUnlocked() && overlaps(door.getBoundingBox(), left, top, right, bottom)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sweep a box along a straight line against the walls and locked doors, so fast projectiles can't pass through
+     * geometry thinner than the distance they move in one tick
+     * @param left the box's bounds at the start of the motion
+     * @param dx how far the box moves along x
+     * @param dy how far the box moves along y
+     * @return the fraction of the motion, from 0 to 1, at which the box first touches something, or NO_HIT
+     */
+    public double sweepBlocked(double left, double top, double right, double bottom, double dx, double dy) {
+        double first = NO_HIT;
+        int candidates = solidGrid.query(Math.min(left, left + dx), Math.min(top, top + dy),
+                Math.max(right, right + dx), Math.max(bottom, bottom + dy));
+        for (int i = 0; i < candidates; i++) {
+            int box = solidGrid.getResult(i) * 4;
+            first = Math.min(first, sweep(left, top, right, bottom, dx, dy,
+                    solidBoxes[box], solidBoxes[box + 1], solidBoxes[box + 2], solidBoxes[box + 3]));
+        }
+
+        for (int i = 0; i < doors.size(); i++) {
+            Door door = doors.get(i);
+            if (!door.isUnlocked()) {
+                first = Math.min(first, sweep(left, top, right, bottom, dx, dy, door.getBoundingBox()));
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Sweep a moving box against a still one, one axis at a time
+     * @return the fraction of the motion, from 0 to 1, at which the boxes start to overlap, or NO_HIT
+     */
+    public static double sweep(double left, double top, double right, double bottom, double dx, double dy,
+                               Rectangle target) {
+        return sweep(left, top, right, bottom, dx, dy, target.left(), target.top(), target.right(), target.bottom());
+    }
+
+    private static double sweep(double left, double top, double right, double bottom, double dx, double dy,
+                                double targetLeft, double targetTop, double targetRight, double targetBottom) {
+        double enter = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+
+        if (dx == 0) {
+            if (left >= targetRight || right <= targetLeft) {
+                return NO_HIT;
+            }
+        } else {
+            double near = (dx > 0 ? targetLeft - right : targetRight - left) / dx;
+            double far = (dx > 0 ? targetRight - left : targetLeft - right) / dx;
+            enter = near;
+            exit = far;
+        }
+
+        if (dy == 0) {
+            if (top >= targetBottom || bottom <= targetTop) {
+                return NO_HIT;
+            }
+        } else {
+            double near = (dy > 0 ? targetTop - bottom : targetBottom - top) / dy;
+            double far = (dy > 0 ? targetBottom - top : targetTop - bottom) / dy;
+            enter = Math.max(enter, near);
+            exit = Math.min(exit, far);
+        }
+
+        // Touching edges don't count as overlapping, the same as in the overlap tests
+        if (enter >= exit || enter >= 1 || exit <= 0) {
+            return NO_HIT;
+        }
+        return Math.max(enter, 0);
+    }
+
+    /**
+     * @return the number of hazards the box overlaps
+     */
+    public int countHazards(Rectangle box) {
+        double left = box.left();
+        double top = box.top();
+        double right = box.right();
+        double bottom = box.bottom();
+
+        int hits = 0;
+        int candidates = hazardGrid.query(left, top, right, bottom);
+        for (int i = 0; i < candidates; i++) {
+            if (overlaps(hazardBoxes, hazardGrid.getResult(i), left, top, right, bottom)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static double[] store(double[] boxes, int index, Rectangle box) {
+        if ((index + 1) * 4 > boxes.length) {
+            boxes = Arrays.copyOf(boxes, boxes.length * 2);
+        }
+        boxes[index * 4] = box.left();
+        boxes[index * 4 + 1] = box.top();
+        boxes[index * 4 + 2] = box.right();
+        boxes[index * 4 + 3] = box.bottom();
+        return boxes;
+    }
+
+    private static boolean overlaps(double[] boxes, int index, double left, double top, double right, double bottom) {
+        return left < boxes[index * 4 + 2] && right > boxes[index * 4]
+                && top < boxes[index * 4 + 3] && bottom > boxes[index * 4 + 1];
+    }
+
+    private static boolean overlaps(Rectangle box, double left, double top, double right, double bottom) {
+        return left < box.right() && right > box.left() && top < box.bottom() && bottom > box.top();
+    }
+}
@@ -1,5 +1,3 @@
-import bagel.Image;
-import bagel.Input;
 import bagel.Keys;
 import bagel.util.Point;
 
@@ -7,16 +5,18 @@ import bagel.util.Point;
  * Store interface for purchasing weapon upgrades and health
  */
 public class Store {
-    private final Image image;
+    private final GameWorld world;
+    private final Sprite image;
     private final Point position;
     private boolean visible = false;
 
-    public Store() {
-        this.image = new Image("res/store.png");
-        this.position = IOUtils.parseCoords(ShadowDungeon.getGameProps().getProperty("store"));
+    public Store(GameWorld world) {
+        this.world = world;
+        this.image = SpriteRegistry.get("res/store.png");
+        this.position = world.getConfig().storePosition;
     }
 
-    public void update(Input input, Player player) {
+    public void update(InputSource input, Player player) {
         // Purchase weapon upgrade
         if (input.wasPressed(Keys.L)) {
             player.upgradeWeapon();
@@ -29,13 +29,13 @@ public class Store {
 
         // Restart game
         if (input.wasPressed(Keys.P)) {
-            ShadowDungeon.resetGameState(ShadowDungeon.getGameProps());
+            world.resetGameState();
         }
     }
 
     public void draw() {
         if (visible) {
-            image.draw(position.x, position.y);
+            image.draw(position.x, position.y, RenderLayer.OVERLAY);
         }
     }
 
@@ -1,4 +1,3 @@
-import bagel.Image;
 import bagel.util.Point;
 import bagel.util.Rectangle;
 
@@ -7,12 +6,12 @@ import bagel.util.Rectangle;
  */
 public class Table {
     private final Point position;
-    private final Image image;
+    private final Sprite image;
     private boolean active = true;
 
     public Table(Point position) {
         this.position = position;
-        this.image = new Image("res/table.png");
+        this.image = SpriteRegistry.get("res/table.png");
     }
 
     public void update(Player player) {
@@ -30,20 +29,12 @@ public class Table {
         }
     }
 
-    public boolean checkBulletCollision(Bullet bullet) {
-        if (active && bullet.hasCollidedWith(getBoundingBox())) {
-            bullet.deactivate();
-            active = false;
-            return true;
-        }
-        return false;
-    }
-
-    public boolean checkFireballCollision(Rectangle fireballBox) {
-        if (active && getBoundingBox().intersects(fireballBox)) {
-            return true; // Fireball is destroyed but table remains
-        }
-        return false;
+    /**
+     * Destroy the table with a bullet found to hit it somewhere along the bullet's path
+     */
+    public void takeHit(Bullet bullet) {
+        bullet.deactivate();
+        active = false;
     }
 
     public boolean hasCollidedWith(Player player) {
@@ -55,6 +46,14 @@ public class Table {
         return image.getBoundingBoxAt(position);
     }
 
+    public void reset() {
+        active = true;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
     public boolean isActive() {
         return active;
     }
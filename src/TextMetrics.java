@@ -0,0 +1,58 @@
+import org.lwjgl.stb.STBTTFontinfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.stb.STBTruetype.stbtt_GetCodepointHMetrics;
+import static org.lwjgl.stb.STBTruetype.stbtt_InitFont;
+import static org.lwjgl.stb.STBTruetype.stbtt_ScaleForPixelHeight;
+
+/**
+ * Measures text straight from a font file with stb_truetype, without a GL context, so text can be laid out on the
+ * simulation thread. Widths add up the glyph advances at the scale that makes the font as tall as the font size, the
+ * same way bagel's Font measures them.
+ */
+public class TextMetrics {
+    private static final Map<String, TextMetrics> METRICS = new HashMap<>();
+
+    // stb_truetype reads the font from this buffer for as long as the font info is used
+    private final ByteBuffer fontData;
+    private final STBTTFontinfo info = STBTTFontinfo.create();
+    private final int[] advanceWidth = new int[1];
+
+    private TextMetrics(String fontFile) {
+        try {
+            byte[] bytes = Files.readAllBytes(Paths.get(fontFile));
+            fontData = ByteBuffer.allocateDirect(bytes.length);
+            fontData.put(bytes).flip();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(String.format("Cannot read font '%s'", fontFile), ex);
+        }
+        if (!stbtt_InitFont(info, fontData)) {
+            throw new IllegalArgumentException(String.format("'%s' is not a font stb_truetype can read", fontFile));
+        }
+    }
+
+    public static synchronized TextMetrics get(String fontFile) {
+        TextMetrics metrics = METRICS.get(fontFile);
+        if (metrics == null) {
+            metrics = new TextMetrics(fontFile);
+            METRICS.put(fontFile, metrics);
+        }
+        return metrics;
+    }
+
+    public synchronized double getWidth(String text, int fontSize) {
+        double scale = stbtt_ScaleForPixelHeight(info, fontSize);
+        double width = 0;
+        for (int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+            stbtt_GetCodepointHMetrics(info, text.codePointAt(i), advanceWidth, null);
+            width += advanceWidth[0] * scale;
+        }
+        return width;
+    }
+}
@@ -1,5 +1,3 @@
-import bagel.Image;
-import bagel.Input;
 import bagel.Keys;
 import bagel.util.Point;
 
@@ -8,17 +6,17 @@ import bagel.util.Point;
  */
 public class TreasureBox {
     private final Point position;
-    private final Image image;
+    private final Sprite image;
     private final double coinValue;
     private boolean active = true;
 
     public TreasureBox(Point position, double coinValue) {
         this.position = position;
         this.coinValue = coinValue;
-        this.image = new Image("res/treasure_box.png");
+        this.image = SpriteRegistry.get("res/treasure_box.png");
     }
 
-    public void update(Input input, Player player) {
+    public void update(InputSource input, Player player) {
         if (!active) return;
 
         if (hasCollidedWith(player) && input.wasPressed(Keys.K)) {
@@ -41,6 +39,14 @@ public class TreasureBox {
                 player.getCurrImage().getBoundingBoxAt(player.getPosition()));
     }
 
+    public void reset() {
+        active = true;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
     public boolean isActive() {
         return active;
     }
@@ -1,63 +1,114 @@
-import bagel.Font;
-import bagel.Window;
 import bagel.util.Point;
 
 /**
- * Helper methods to display information for the player
+ * Displays information for the player of one game world
  */
 public class UserInterface {
-    public static void drawStats(double health, double coins, int keys, int weaponLevel) {
-        int fontSize = Integer.parseInt(ShadowDungeon.getGameProps().getProperty("playerStats.fontSize"));
+    private static final double LOADING_MARGIN = 30;
 
-        // Draw health
-        drawData(String.format("%s %.1f", ShadowDungeon.getMessageProps().getProperty("healthDisplay"), health),
-                fontSize, IOUtils.parseCoords(ShadowDungeon.getGameProps().getProperty("healthStat")));
+    private final GameWorld world;
+    private StatText healthText;
+    private StatText coinText;
+    private StatText keyText;
+    private StatText weaponText;
+    private long loadingPercent = -1;
+    private String loadingText;
 
-        // Draw coins
-        drawData(String.format("%s %.0f", ShadowDungeon.getMessageProps().getProperty("coinDisplay"), coins),
-                fontSize, IOUtils.parseCoords(ShadowDungeon.getGameProps().getProperty("coinStat")));
+    public UserInterface(GameWorld world) {
+        this.world = world;
+    }
 
-        // Draw keys
-        drawData(String.format("%s %d", ShadowDungeon.getMessageProps().getProperty("keyDisplay"), keys),
-                fontSize, IOUtils.parseCoords(ShadowDungeon.getGameProps().getProperty("keyStat")));
+    public void drawStats(double health, double coins, int keys, int weaponLevel) {
+        FrameProfiler.begin(FrameProfiler.Stage.UI);
+        if (healthText == null) {
+            initStatTexts();
+        }
 
-        // Draw weapon level
-        drawData(String.format("%s %d", ShadowDungeon.getMessageProps().getProperty("weaponDisplay"), weaponLevel),
-                fontSize, IOUtils.parseCoords(ShadowDungeon.getGameProps().getProperty("weaponStat")));
+        healthText.draw(health);
+        coinText.draw(coins);
+        keyText.draw(keys);
+        weaponText.draw(weaponLevel);
+        FrameProfiler.end(FrameProfiler.Stage.UI);
     }
 
-    public static void drawStartMessages() {
-        drawTextCentered("title", Integer.parseInt(ShadowDungeon.getGameProps().getProperty("title.fontSize")),
-                Double.parseDouble(ShadowDungeon.getGameProps().getProperty("title.y")));
-        drawTextCentered("moveMessage", Integer.parseInt(ShadowDungeon.getGameProps().getProperty("prompt.fontSize")),
-                Double.parseDouble(ShadowDungeon.getGameProps().getProperty("moveMessage.y")));
-        drawTextCentered("selectMessage", Integer.parseInt(ShadowDungeon.getGameProps().getProperty("prompt.fontSize")),
-                Double.parseDouble(ShadowDungeon.getGameProps().getProperty("selectMessage.y")));
+    private void initStatTexts() {
+        GameConfig config = world.getConfig();
+
+        healthText = new StatText(config.healthDisplay, "%s %.1f", config.healthStat, config.playerStatsFontSize);
+        coinText = new StatText(config.coinDisplay, "%s %.0f", config.coinStat, config.playerStatsFontSize);
+        keyText = new StatText(config.keyDisplay, "%s %d", config.keyStat, config.playerStatsFontSize);
+        weaponText = new StatText(config.weaponDisplay, "%s %d", config.weaponStat, config.playerStatsFontSize);
+    }
+
+    public void drawStartMessages() {
+        GameConfig config = world.getConfig();
+        drawTextCentered(config.title, config.titleFontSize, config.titleY);
+        drawTextCentered(config.moveMessage, config.promptFontSize, config.moveMessageY);
+        drawTextCentered(config.selectMessage, config.promptFontSize, config.selectMessageY);
 
         // Draw character descriptions
-        int descFontSize = Integer.parseInt(ShadowDungeon.getGameProps().getProperty("prompt.fontSize"));
-        Point robotPos = IOUtils.parseCoords(ShadowDungeon.getGameProps().getProperty("robotMessage"));
-        Point marinePos = IOUtils.parseCoords(ShadowDungeon.getGameProps().getProperty("marineMessage"));
+        drawData(config.robotDescription, config.promptFontSize, config.robotMessage);
+        drawData(config.marineDescription, config.promptFontSize, config.marineMessage);
+    }
 
-        drawData(ShadowDungeon.getMessageProps().getProperty("robotDescription"), descFontSize, robotPos);
-        drawData(ShadowDungeon.getMessageProps().getProperty("marineDescription"), descFontSize, marinePos);
+    public void drawLoadingProgress(double progress) {
+        GameConfig config = world.getConfig();
+        // Only re-format when the percentage shown changes, like the stats
+        long percent = Math.round(progress * 100);
+        if (percent != loadingPercent) {
+            loadingPercent = percent;
+            loadingText = String.format(config.loadingMessage, (double) percent);
+        }
+        drawTextCentered(loadingText, config.promptFontSize, config.windowHeight - LOADING_MARGIN);
     }
 
-    public static void drawEndMessage(boolean win) {
-        drawTextCentered(win ? "gameEnd.won" : "gameEnd.lost",
-                Integer.parseInt(ShadowDungeon.getGameProps().getProperty("title.fontSize")),
-                Double.parseDouble(ShadowDungeon.getGameProps().getProperty("title.y")));
+    public void drawEndMessage(boolean win) {
+        GameConfig config = world.getConfig();
+        drawTextCentered(win ? config.gameWonMessage : config.gameLostMessage, config.titleFontSize, config.titleY);
     }
 
-    public static void drawTextCentered(String textPath, int fontSize, double posY) {
-        Font font = new Font("res/wheaton.otf", fontSize);
-        String text = ShadowDungeon.getMessageProps().getProperty(textPath);
-        double posX = (Window.getWidth() - font.getWidth(text)) / 2;
-        font.drawString(text, posX, posY);
+    public void drawTextCentered(String text, int fontSize, double posY) {
+        world.getRenderer().drawTextCentered(text, fontSize, world.getConfig().windowWidth / 2.0, posY,
+                RenderLayer.HUD);
     }
 
-    public static void drawData(String data, int fontSize, Point location) {
-        Font font = new Font("res/wheaton.otf", fontSize);
-        font.drawString(data, location.x, location.y);
+    public void drawData(String data, int fontSize, Point location) {
+        world.getRenderer().drawText(data, fontSize, location.x, location.y, RenderLayer.HUD);
+    }
+
+    /**
+     * A single line of the stats display which is only re-formatted when its value changes
+     */
+    private class StatText {
+        private final String label;
+        private final String format;
+        private final Point location;
+        private final int fontSize;
+        private double value = Double.NaN;
+        private int intValue;
+        private String text;
+
+        private StatText(String label, String format, Point location, int fontSize) {
+            this.label = label;
+            this.format = format;
+            this.location = location;
+            this.fontSize = fontSize;
+        }
+
+        private void draw(double newValue) {
+            if (text == null || newValue != value) {
+                value = newValue;
+                text = String.format(format, label, newValue);
+            }
+            world.getRenderer().drawText(text, fontSize, location.x, location.y, RenderLayer.HUD);
+        }
+
+        private void draw(int newValue) {
+            if (text == null || newValue != intValue) {
+                intValue = newValue;
+                text = String.format(format, label, newValue);
+            }
+            world.getRenderer().drawText(text, fontSize, location.x, location.y, RenderLayer.HUD);
+        }
     }
-}
\ No newline at end of file
+}
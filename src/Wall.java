@@ -1,4 +1,3 @@
-import bagel.Image;
 import bagel.util.Point;
 import bagel.util.Rectangle;
 
@@ -7,29 +6,24 @@ import bagel.util.Rectangle;
  */
 public class Wall {
     private final Point position;
-    private final Image image;
+    private final Sprite image;
+    private final Rectangle boundingBox;
 
     public Wall(Point position) {
         this.position = position;
-        this.image = new Image("res/wall.png");
-    }
-
-    public void update(Player player) {
-        if (hasCollidedWith(player)) {
-            player.move(player.getPrevPosition().x, player.getPrevPosition().y);
-        }
+        this.image = SpriteRegistry.get("res/wall.png");
+        this.boundingBox = image.getBoundingBoxAt(position);
     }
 
     public void draw() {
         image.draw(position.x, position.y);
     }
 
-    public boolean hasCollidedWith(Player player) {
-        return image.getBoundingBoxAt(position).intersects(
-                player.getCurrImage().getBoundingBoxAt(player.getPosition()));
+    public void addTo(BackgroundLayer layer) {
+        layer.add(image, position);
     }
 
     public Rectangle getBoundingBox() {
-        return image.getBoundingBoxAt(position);
+        return boundingBox;
     }
 }
\ No newline at end of file